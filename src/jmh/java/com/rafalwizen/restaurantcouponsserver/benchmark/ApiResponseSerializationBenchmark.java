@@ -0,0 +1,61 @@
+package com.rafalwizen.restaurantcouponsserver.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rafalwizen.restaurantcouponsserver.dto.ApiResponse;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponSummaryDto;
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of the default public listing response, a page of 20 coupon summaries, with an
+ * object mapper configured the way Spring Boot configures the MVC one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ApiResponseSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<Page<CouponSummaryDto>> response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<CouponSummaryDto> summaries = BenchmarkFixtures.activeCoupons(20).stream()
+                .map(ApiResponseSerializationBenchmark::summary)
+                .toList();
+        response = ApiResponse.success("Active coupons retrieved successfully",
+                new PageImpl<>(summaries, PageRequest.of(0, 20), 200));
+    }
+
+    @Benchmark
+    public byte[] serializeSummaryPage() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private static CouponSummaryDto summary(Coupon coupon) {
+        CouponSummaryDto dto = new CouponSummaryDto();
+        dto.setId(coupon.getId());
+        dto.setName(coupon.getName());
+        dto.setDiscountValue(coupon.getDiscountValue());
+        dto.setImageId(coupon.getImageId());
+        if (coupon.getImageId() != null) {
+            dto.setImageUrl("https://coupons.example.com/api/images/" + coupon.getImageId() + "/content");
+        }
+        return dto;
+    }
+}
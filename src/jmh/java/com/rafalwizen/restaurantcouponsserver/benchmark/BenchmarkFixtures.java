@@ -0,0 +1,67 @@
+package com.rafalwizen.restaurantcouponsserver.benchmark;
+
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Data shared by the benchmarks, shaped like production rows.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static List<Coupon> activeCoupons(int count) {
+        long now = System.currentTimeMillis();
+        List<Coupon> coupons = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            Coupon coupon = new Coupon();
+            coupon.setId(id);
+            coupon.setName("Coupon " + id);
+            coupon.setDescription("Get " + (id % 50) + "% off on selected dishes from our seasonal menu");
+            coupon.setDiscountValue(BigDecimal.valueOf(id % 50, 0).setScale(2));
+            coupon.setValidFrom(new Date(now - 86_400_000L));
+            coupon.setValidTo(new Date(now + 86_400_000L * 30));
+            coupon.setTermsAndConditions("Not valid on weekends and holidays. One coupon per order.");
+            coupon.setIsActive(true);
+            // Most coupons in production carry an image
+            coupon.setImageId(id % 4 == 0 ? null : id);
+            coupon.setCreatedAt(new Date(now - 86_400_000L * 2));
+            coupon.setUpdatedAt(new Date(now - 86_400_000L));
+            coupons.add(coupon);
+        }
+        return coupons;
+    }
+
+    static Image image(long id) {
+        Image image = new Image();
+        image.setId(id);
+        image.setFileName("beverage_splash.jpg");
+        image.setFilePath("0b9c2625-dc21-44a3-9c7c-54f2e1c5e8a1.jpg");
+        image.setFileType("image/jpeg");
+        image.setFileSize(245_678L);
+        image.setDescription("Refreshing drink with splash for Happy Hour promotion");
+        image.setCreatedAt(new Date());
+        image.setUpdatedAt(new Date());
+        return image;
+    }
+
+    /**
+     * Binds a request to the calling thread, as the dispatcher servlet does for controllers.
+     */
+    static void bindRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/coupons");
+        request.setScheme("https");
+        request.setServerName("coupons.example.com");
+        request.setServerPort(443);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}
@@ -0,0 +1,91 @@
+package com.rafalwizen.restaurantcouponsserver.benchmark;
+
+import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponSummaryDto;
+import com.rafalwizen.restaurantcouponsserver.mapper.CouponMapperImpl;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponChangeRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
+import com.rafalwizen.restaurantcouponsserver.service.CouponCatalog;
+import com.rafalwizen.restaurantcouponsserver.service.CouponService;
+import com.rafalwizen.restaurantcouponsserver.service.ImageUrlResolver;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Public coupon reads served from the in-memory catalog: entity to DTO conversion, including the
+ * absolute image URL derived from the current request, and that URL on its own against building
+ * it with {@link ServletUriComponentsBuilder} for every item.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CouponConversionBenchmark {
+
+    private CouponService couponService;
+    private ImageUrlResolver requestOriginResolver;
+    private Pageable firstPage;
+
+    @Setup
+    public void setUp() {
+        CouponRepository couponRepository = Mockito.mock(CouponRepository.class);
+        Mockito.when(couponRepository.findAllActiveCoupons(any(Date.class)))
+                .thenReturn(BenchmarkFixtures.activeCoupons(200));
+        CouponCatalog catalog = new CouponCatalog(couponRepository, new CouponMapperImpl(), Long.MAX_VALUE);
+        catalog.refresh();
+
+        requestOriginResolver = new ImageUrlResolver("");
+        couponService = new CouponService(couponRepository, Mockito.mock(CouponChangeRepository.class),
+                Mockito.mock(ImageRepository.class), catalog,
+                Mockito.mock(ApplicationEventPublisher.class), new CouponMapperImpl(), requestOriginResolver);
+        firstPage = PageRequest.of(0, 20);
+        BenchmarkFixtures.bindRequest();
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public Page<CouponSummaryDto> summaryPage() {
+        return couponService.getAllActiveCoupons(firstPage);
+    }
+
+    @Benchmark
+    public CouponDetailDto detail() {
+        return couponService.getCouponById(42L);
+    }
+
+    @Benchmark
+    public String imageUrl() {
+        return requestOriginResolver.contentUrl(42L);
+    }
+
+    @Benchmark
+    public String imageUrlWithUriBuilder() {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/images/")
+                .path("42")
+                .path("/content")
+                .toUriString();
+    }
+}
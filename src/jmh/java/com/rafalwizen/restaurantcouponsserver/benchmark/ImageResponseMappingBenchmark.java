@@ -0,0 +1,79 @@
+package com.rafalwizen.restaurantcouponsserver.benchmark;
+
+import com.rafalwizen.restaurantcouponsserver.dto.ImageResponseDto;
+import com.rafalwizen.restaurantcouponsserver.mapper.ImageMapper;
+import com.rafalwizen.restaurantcouponsserver.mapper.ImageMapperImpl;
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.BeanUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image metadata responses: the reflective property copy the service used to do against the
+ * generated mapper, on their own and together with URL building as in
+ * {@code ImageService.convertToResponseDto}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ImageResponseMappingBenchmark {
+
+    private final ImageMapper imageMapper = new ImageMapperImpl();
+    private Image image;
+
+    @Setup
+    public void setUp() {
+        image = BenchmarkFixtures.image(42L);
+        BenchmarkFixtures.bindRequest();
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public ImageResponseDto copyProperties() {
+        ImageResponseDto dto = new ImageResponseDto();
+        BeanUtils.copyProperties(image, dto);
+        return dto;
+    }
+
+    @Benchmark
+    public ImageResponseDto generatedMapper() {
+        return imageMapper.toResponseDto(image);
+    }
+
+    @Benchmark
+    public ImageResponseDto generatedMapperWithUrl() {
+        ImageResponseDto dto = imageMapper.toResponseDto(image);
+        dto.setUrl(imageUrl());
+        return dto;
+    }
+
+    @Benchmark
+    public ImageResponseDto copyPropertiesWithUrl() {
+        ImageResponseDto dto = new ImageResponseDto();
+        BeanUtils.copyProperties(image, dto);
+        dto.setUrl(imageUrl());
+        return dto;
+    }
+
+    private String imageUrl() {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/images/")
+                .path(image.getId().toString())
+                .path("/content")
+                .toUriString();
+    }
+}
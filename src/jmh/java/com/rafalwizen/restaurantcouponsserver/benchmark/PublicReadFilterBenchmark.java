@@ -0,0 +1,90 @@
+package com.rafalwizen.restaurantcouponsserver.benchmark;
+
+import com.rafalwizen.restaurantcouponsserver.security.AdminPrincipalCache;
+import com.rafalwizen.restaurantcouponsserver.security.jwt.JwtAuthenticationFilter;
+import com.rafalwizen.restaurantcouponsserver.security.jwt.JwtTokenProvider;
+import com.rafalwizen.restaurantcouponsserver.service.AdminService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter cost of an anonymous coupon read sent by a client that still attaches a bearer token,
+ * with and without the public read bypass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PublicReadFilterBenchmark {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(
+            "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret".getBytes());
+
+    private JwtAuthenticationFilter bypassingFilter;
+    private JwtAuthenticationFilter authenticatingFilter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(SECRET, 3600000);
+        User admin = new User("admin", "", AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+        authorization = "Bearer " + tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+
+        AdminService adminService = Mockito.mock(AdminService.class);
+        Mockito.when(adminService.loadUserByUsername("admin")).thenReturn(admin);
+        AdminPrincipalCache principalCache = new AdminPrincipalCache(adminService, 100, Duration.ofHours(1));
+
+        bypassingFilter = filter(List.of("/api/coupons/**", "/api/images/*/content"), tokenProvider, principalCache);
+        authenticatingFilter = filter(List.of(), tokenProvider, principalCache);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse publicReadWithBypass() throws Exception {
+        return run(bypassingFilter);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse publicReadWithoutBypass() throws Exception {
+        return run(authenticatingFilter);
+    }
+
+    private MockHttpServletResponse run(JwtAuthenticationFilter filter) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/coupons/42");
+        request.setServletPath("/api/coupons/42");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+
+    private static JwtAuthenticationFilter filter(List<String> publicReadPaths, JwtTokenProvider tokenProvider,
+                                                  AdminPrincipalCache principalCache) {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(publicReadPaths);
+        ReflectionTestUtils.setField(filter, "tokenProvider", tokenProvider);
+        ReflectionTestUtils.setField(filter, "principalCache", principalCache);
+        return filter;
+    }
+}
@@ -0,0 +1,40 @@
+package com.rafalwizen.restaurantcouponsserver.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class CouponStreamConfig {
+
+    /**
+     * Single thread that reads the change log and decides what each coupon stream subscriber
+     * receives. Keeping that state on one thread orders events without locking; the writes
+     * themselves happen on {@link #couponStreamSendExecutor}, so a slow client cannot stall it.
+     */
+    @Bean(name = "couponStreamExecutor")
+    public ThreadPoolTaskExecutor couponStreamExecutor(
+            @Value("${app.coupons.stream.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("coupon-stream-");
+        return executor;
+    }
+
+    /**
+     * Writes queued events to coupon stream subscribers. Each subscriber has at most one task here
+     * at a time, so the queue is bounded by the number of connections.
+     */
+    @Bean(name = "couponStreamSendExecutor")
+    public ThreadPoolTaskExecutor couponStreamSendExecutor(
+            @Value("${app.coupons.stream.send-threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("coupon-stream-send-");
+        return executor;
+    }
+}
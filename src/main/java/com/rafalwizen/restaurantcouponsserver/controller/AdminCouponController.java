@@ -1,6 +1,7 @@
 package com.rafalwizen.restaurantcouponsserver.controller;
 
 import com.rafalwizen.restaurantcouponsserver.dto.*;
+import com.rafalwizen.restaurantcouponsserver.service.CouponImportService;
 import com.rafalwizen.restaurantcouponsserver.service.CouponService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -12,9 +13,13 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/api/admin/coupons")
 @Tag(name = "Admin Coupon API", description = "API endpoints for admin coupon management")
@@ -22,10 +27,12 @@ import org.springframework.web.bind.annotation.*;
 public class AdminCouponController {
 
     private final CouponService couponService;
+    private final CouponImportService couponImportService;
 
     @Autowired
-    public AdminCouponController(CouponService couponService) {
+    public AdminCouponController(CouponService couponService, CouponImportService couponImportService) {
         this.couponService = couponService;
+        this.couponImportService = couponImportService;
     }
 
     @GetMapping
@@ -43,6 +50,20 @@ public class AdminCouponController {
         return ResponseEntity.ok(ApiResponse.success("Coupons retrieved successfully", coupons));
     }
 
+    @GetMapping(params = "limit")
+    @Operation(summary = "Get coupons after a cursor", description = "Retrieve a keyset-paginated slice of all coupons without a total count")
+    public ResponseEntity<ApiResponse<CursorSliceDto<CouponSummaryDto>>> getAllCouponsAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam int limit,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String direction) {
+
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        CursorSliceDto<CouponSummaryDto> coupons = couponService.getAllCouponsAfter(after, limit, sortBy, sortDirection);
+        return ResponseEntity.ok(ApiResponse.success("Coupons retrieved successfully", coupons));
+    }
+
     @PostMapping
     @Operation(summary = "Create new coupon", description = "Create a new coupon with the provided information")
     public ResponseEntity<ApiResponse<CouponDetailDto>> createCoupon(@Valid @RequestBody CouponCreateDto couponDto) {
@@ -50,6 +71,26 @@ public class AdminCouponController {
         return new ResponseEntity<>(ApiResponse.success("Coupon created successfully", createdCoupon), HttpStatus.CREATED);
     }
 
+    @PostMapping(path = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Import coupons from JSON", description = "Create coupons from a JSON array, reporting rows that could not be imported")
+    public ResponseEntity<ApiResponse<CouponImportReportDto>> importCouponsJson(InputStream body) throws IOException {
+        return importResponse(couponImportService.importJson(body));
+    }
+
+    @PostMapping(path = "/import", consumes = "text/csv")
+    @Operation(summary = "Import coupons from CSV", description = "Create coupons from CSV with a header row, reporting rows that could not be imported")
+    public ResponseEntity<ApiResponse<CouponImportReportDto>> importCouponsCsv(InputStream body) throws IOException {
+        return importResponse(couponImportService.importCsv(body));
+    }
+
+    @PostMapping("/bulk")
+    @Operation(summary = "Apply bulk operation", description = "Activate, deactivate, extend or delete all coupons selected by ids or by a filter")
+    public ResponseEntity<ApiResponse<CouponBulkResultDto>> applyBulkOperation(
+            @Valid @RequestBody CouponBulkOperationDto operation) {
+        CouponBulkResultDto result = couponService.applyBulkOperation(operation);
+        return ResponseEntity.ok(ApiResponse.success("Bulk operation applied to " + result.getAffected() + " coupons", result));
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update coupon", description = "Update an existing coupon with the provided information")
     public ResponseEntity<ApiResponse<CouponDetailDto>> updateCoupon(
@@ -72,4 +113,9 @@ public class AdminCouponController {
         CouponDetailDto coupon = couponService.getAdminCouponById(id);
         return ResponseEntity.ok(ApiResponse.success("Coupon retrieved successfully", coupon));
     }
-}
\ No newline at end of file
+
+    private static ResponseEntity<ApiResponse<CouponImportReportDto>> importResponse(CouponImportReportDto report) {
+        String message = "Imported " + report.getImported() + " of " + report.getRows() + " coupons";
+        return ResponseEntity.ok(ApiResponse.success(message, report));
+    }
+}
@@ -0,0 +1,68 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import com.rafalwizen.restaurantcouponsserver.service.ExportService;
+import com.rafalwizen.restaurantcouponsserver.service.ImageUrlResolver;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/admin/export")
+@Tag(name = "Admin Export API", description = "API endpoints for full data exports")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final ExportService exportService;
+    private final ImageUrlResolver imageUrlResolver;
+
+    @Autowired
+    public AdminExportController(ExportService exportService, ImageUrlResolver imageUrlResolver) {
+        this.exportService = exportService;
+        this.imageUrlResolver = imageUrlResolver;
+    }
+
+    @GetMapping("/coupons")
+    @Operation(summary = "Export all coupons", description = "Stream every coupon as newline-delimited JSON, optionally as a gzip file")
+    public ResponseEntity<StreamingResponseBody> exportCoupons(@RequestParam(defaultValue = "false") boolean gzip) {
+        // The body is written on another thread, which cannot resolve the request origin itself
+        String origin = imageUrlResolver.origin();
+        return export("coupons", gzip, out -> exportService.exportCoupons(out, origin));
+    }
+
+    @GetMapping("/images")
+    @Operation(summary = "Export all images", description = "Stream every image record as newline-delimited JSON, optionally as a gzip file")
+    public ResponseEntity<StreamingResponseBody> exportImages(@RequestParam(defaultValue = "false") boolean gzip) {
+        String origin = imageUrlResolver.origin();
+        return export("images", gzip, out -> exportService.exportImages(out, origin));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> export(String name, boolean gzip, StreamingResponseBody body) {
+        String fileName = name + (gzip ? ".ndjson.gz" : ".ndjson");
+        StreamingResponseBody content = !gzip ? body : out -> {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+            body.writeTo(compressed);
+            // Writes the gzip trailer, the response stream itself is closed by the container
+            compressed.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(content);
+    }
+}
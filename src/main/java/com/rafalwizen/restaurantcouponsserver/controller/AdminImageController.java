@@ -0,0 +1,34 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import com.rafalwizen.restaurantcouponsserver.dto.ApiResponse;
+import com.rafalwizen.restaurantcouponsserver.dto.ImageCacheStatsDto;
+import com.rafalwizen.restaurantcouponsserver.service.ImageContentCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/images")
+@Tag(name = "Admin Image API", description = "API endpoints for image storage administration")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminImageController {
+
+	private final ImageContentCache imageContentCache;
+
+	@Autowired
+	public AdminImageController(ImageContentCache imageContentCache) {
+		this.imageContentCache = imageContentCache;
+	}
+
+	@GetMapping("/cache-stats")
+	@Operation(summary = "Get image cache statistics", description = "Hits, misses, evictions and memory use of the image metadata and content caches since startup")
+	public ResponseEntity<ApiResponse<ImageCacheStatsDto>> getCacheStats() {
+		return ResponseEntity.ok(ApiResponse.success("Image cache statistics retrieved successfully",
+				imageContentCache.stats()));
+	}
+}
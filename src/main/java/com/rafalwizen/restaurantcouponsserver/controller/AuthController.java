@@ -3,40 +3,69 @@ package com.rafalwizen.restaurantcouponsserver.controller;
 import com.rafalwizen.restaurantcouponsserver.dto.ApiResponse;
 import com.rafalwizen.restaurantcouponsserver.dto.LoginRequestDto;
 import com.rafalwizen.restaurantcouponsserver.dto.LoginResponseDto;
-import com.rafalwizen.restaurantcouponsserver.model.Admin;
+import com.rafalwizen.restaurantcouponsserver.exception.TooManyRequestsException;
+import com.rafalwizen.restaurantcouponsserver.security.LoginThrottle;
 import com.rafalwizen.restaurantcouponsserver.security.jwt.JwtTokenProvider;
-import com.rafalwizen.restaurantcouponsserver.service.AdminService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    private static final String ROLE_PREFIX = "ROLE_";
+
     private final AuthenticationManager authenticationManager;
-    private final AdminService adminService;
     private final JwtTokenProvider tokenProvider;
+    private final LoginThrottle loginThrottle;
+    private final TaskExecutor passwordHashingExecutor;
 
     @Autowired
     public AuthController(AuthenticationManager authenticationManager,
-                          AdminService adminService,
-                          JwtTokenProvider tokenProvider) {
+                          JwtTokenProvider tokenProvider,
+                          LoginThrottle loginThrottle,
+                          @Qualifier("passwordHashingExecutor") TaskExecutor passwordHashingExecutor) {
         this.authenticationManager = authenticationManager;
-        this.adminService = adminService;
         this.tokenProvider = tokenProvider;
+        this.loginThrottle = loginThrottle;
+        this.passwordHashingExecutor = passwordHashingExecutor;
     }
 
+    /**
+     * Verifies the credentials on the password hashing pool and releases the servlet thread while
+     * BCrypt runs. Throttled attempts and attempts that find the pool saturated get a 429.
+     * <p>
+     * Attempts are throttled by the client address the container resolved from the forwarded
+     * headers of a trusted proxy, see {@code server.forward-headers-strategy}.
+     */
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<LoginResponseDto>> authenticateUser(@Valid @RequestBody LoginRequestDto loginRequest) {
+    public CompletableFuture<ResponseEntity<ApiResponse<LoginResponseDto>>> authenticateUser(
+            @Valid @RequestBody LoginRequestDto loginRequest, HttpServletRequest request) {
+        loginThrottle.acquire(request.getRemoteAddr(), loginRequest.getUsername());
+
+        try {
+            return CompletableFuture.supplyAsync(() -> login(loginRequest), passwordHashingExecutor);
+        } catch (TaskRejectedException ex) {
+            throw new TooManyRequestsException("Login service is busy, please try again later", 1);
+        }
+    }
+
+    private ResponseEntity<ApiResponse<LoginResponseDto>> login(LoginRequestDto loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         loginRequest.getUsername(),
@@ -44,13 +73,18 @@ public class AuthController {
                 )
         );
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-
         String jwt = tokenProvider.generateToken(authentication);
-        Admin admin = adminService.findByUsername(loginRequest.getUsername());
 
-        LoginResponseDto responseDto = new LoginResponseDto(jwt, admin.getUsername(), admin.getRole());
+        // The authenticated principal already carries the role, no need to load the admin again
+        String role = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(authority -> authority.startsWith(ROLE_PREFIX))
+                .map(authority -> authority.substring(ROLE_PREFIX.length()))
+                .findFirst()
+                .orElse(null);
+
+        LoginResponseDto responseDto = new LoginResponseDto(jwt, authentication.getName(), role);
 
         return ResponseEntity.ok(ApiResponse.success("Login successful", responseDto));
     }
-}
\ No newline at end of file
+}
@@ -1,20 +1,40 @@
 package com.rafalwizen.restaurantcouponsserver.controller;
 
 import com.rafalwizen.restaurantcouponsserver.dto.ApiResponse;
+import com.rafalwizen.restaurantcouponsserver.dto.BatchGetDto;
 import com.rafalwizen.restaurantcouponsserver.dto.ImageResponseDto;
+import com.rafalwizen.restaurantcouponsserver.exception.ResourceNotFoundException;
+import com.rafalwizen.restaurantcouponsserver.service.ImageContent;
+import com.rafalwizen.restaurantcouponsserver.service.ImageContentCache;
 import com.rafalwizen.restaurantcouponsserver.service.ImageService;
+import com.rafalwizen.restaurantcouponsserver.service.ImageUrlSigner;
+import com.rafalwizen.restaurantcouponsserver.storage.StoredImage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -22,11 +42,27 @@ import java.util.List;
 @Tag(name = "Image API", description = "API endpoints for managing images")
 public class ImageController {
 
+	private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
 	private final ImageService imageService;
+	private final ImageContentCache imageContentCache;
+	private final ImageUrlSigner imageUrlSigner;
+	private final String cacheControl;
+	private final String provisionalCacheControl;
 
 	@Autowired
-	public ImageController(ImageService imageService) {
+	public ImageController(ImageService imageService,
+						   ImageContentCache imageContentCache,
+						   ImageUrlSigner imageUrlSigner,
+						   @Value("${app.images.cache-max-age:P1D}") Duration cacheMaxAge) {
 		this.imageService = imageService;
+		this.imageContentCache = imageContentCache;
+		this.imageUrlSigner = imageUrlSigner;
+		this.cacheControl = CacheControl.maxAge(cacheMaxAge).cachePublic().getHeaderValue();
+		this.provisionalCacheControl = CacheControl.noCache().cachePublic().getHeaderValue();
 	}
 
 	@GetMapping
@@ -36,6 +72,13 @@ public class ImageController {
 		return ResponseEntity.ok(ApiResponse.success("Images retrieved successfully", images));
 	}
 
+	@GetMapping(params = "ids")
+	@Operation(summary = "Get images by IDs", description = "Retrieve metadata of up to 100 images in the requested order, listing ids that were not found")
+	public ResponseEntity<ApiResponse<BatchGetDto<ImageResponseDto>>> getImagesByIds(@RequestParam List<Long> ids) {
+		BatchGetDto<ImageResponseDto> images = imageService.getImagesByIds(ids);
+		return ResponseEntity.ok(ApiResponse.success("Images retrieved successfully", images));
+	}
+
 	@GetMapping("/{id}")
 	@Operation(summary = "Get image metadata by ID", description = "Retrieve metadata about a specific image")
 	public ResponseEntity<ApiResponse<ImageResponseDto>> getImageById(@PathVariable Long id) {
@@ -44,34 +87,144 @@ public class ImageController {
 	}
 
 	@GetMapping("/{id}/content")
-	@Operation(summary = "Get image content by ID", description = "Retrieve the actual image file")
-	public ResponseEntity<Resource> getImageContent(@PathVariable Long id) {
-		Resource resource = imageService.loadImageAsResource(id);
+	@Operation(summary = "Get image content by ID",
+			description = "Retrieve the actual image file, or a downscaled variant of at least the given width. Supports conditional and range requests")
+	public void getImageContent(@PathVariable Long id,
+								@RequestParam(name = "w", required = false) Integer width,
+								HttpServletRequest request, HttpServletResponse response) throws IOException {
+		ImageContent content = imageService.getImageContent(id, width, acceptedMediaTypes(request));
 
-		// Determine content type
-		String contentType = "application/octet-stream";
-		try {
-			contentType = resource.getFile().toPath().getFileName().toString();
-			if (contentType.contains(".")) {
-				String extension = contentType.substring(contentType.lastIndexOf(".") + 1);
-				contentType = switch (extension.toLowerCase()) {
-					case "jpg", "jpeg" -> "image/jpeg";
-					case "png" -> "image/png";
-					case "gif" -> "image/gif";
-					default -> "application/octet-stream";
-				};
+		// Validators come from the metadata row, so a revalidation never reads the file. A stand-in
+		// for a missing variant is revalidated on every use, which picks up the variant once it exists
+		response.setHeader(HttpHeaders.CACHE_CONTROL, content.provisional() ? provisionalCacheControl : cacheControl);
+		response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+		if (new ServletWebRequest(request, response).checkNotModified(content.etag(), content.lastModified())) {
+			return;
+		}
+		writeContent(content, request, response);
+	}
+
+	@GetMapping("/content/{token}")
+	@Operation(summary = "Get image content by signed URL",
+			description = "Serve the stored object named by a signed, expiring token without a metadata lookup. Responses are immutable until the token expires. Supports range requests")
+	public void getSignedImageContent(@PathVariable String token,
+									  HttpServletRequest request, HttpServletResponse response) throws IOException {
+		ImageUrlSigner.SignedImage signed = imageUrlSigner.verify(token);
+		// Stored objects never change, a signed URL serves the same bytes until it expires
+		long maxAge = Math.max(0, signed.expiresAt() - System.currentTimeMillis() / 1000);
+		response.setHeader(HttpHeaders.CACHE_CONTROL,
+				CacheControl.maxAge(Duration.ofSeconds(maxAge)).cachePublic().immutable().getHeaderValue());
+		String etag = "\"" + StringUtils.getFilename(signed.storedPath()) + "\"";
+		if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+			return;
+		}
+		writeContent(new ImageContent(signed.storedPath(), null, signed.contentType(), -1, etag, false), request, response);
+	}
+
+	/**
+	 * Writes the body of a content response, or the requested range of it, from the body cache or
+	 * from storage.
+	 */
+	private void writeContent(ImageContent content, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		byte[] body = imageContentCache.cachedBody(content.storedPath());
+		StoredImage stored = null;
+		long length;
+		if (body != null) {
+			length = body.length;
+		} else {
+			try {
+				stored = imageService.openContent(content);
+			} catch (NoSuchFileException ex) {
+				throw new ResourceNotFoundException("File not found: " + content.storedPath());
 			}
-		} catch (Exception e) {
-			// Use default content type if determination fails
+			length = stored.length();
+			body = imageContentCache.body(content.storedPath(), stored);
+		}
+
+		long start = 0;
+		long end = length - 1;
+		HttpRange range = requestedRange(request, content.etag());
+		if (range != null) {
+			if (length == 0 || range.getRangeStart(length) >= length) {
+				response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+				return;
+			}
+			start = range.getRangeStart(length);
+			end = range.getRangeEnd(length);
+			response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+			response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+		}
+
+		response.setContentType(content.contentType());
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		ContentDisposition.Builder disposition = ContentDisposition.inline();
+		if (content.fileName() != null) {
+			disposition.filename(content.fileName(), StandardCharsets.UTF_8);
 		}
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+		response.setContentLengthLong(end - start + 1);
 
-		return ResponseEntity.ok()
-				.contentType(MediaType.parseMediaType(contentType))
-				.header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-				.body(resource);
+		if (HttpMethod.HEAD.matches(request.getMethod())) {
+			return;
+		}
+		if (body != null) {
+			response.getOutputStream().write(body, (int) start, (int) (end - start + 1));
+			return;
+		}
+		writeStored(stored, start, end - start + 1, request, response);
 	}
 
-	@PostMapping
+	private static List<MediaType> acceptedMediaTypes(HttpServletRequest request) {
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		if (!StringUtils.hasText(accept)) {
+			return List.of();
+		}
+		try {
+			return MediaType.parseMediaTypes(accept);
+		} catch (InvalidMediaTypeException ex) {
+			return List.of();
+		}
+	}
+
+	/**
+	 * Returns the single byte range to serve, or null for the whole file. Multiple ranges and
+	 * ranges conditional on an outdated If-Range validator fall back to the whole file.
+	 */
+	private HttpRange requestedRange(HttpServletRequest request, String etag) {
+		String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+		if (rangeHeader == null) {
+			return null;
+		}
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (ifRange != null && !ifRange.equals(etag)) {
+			return null;
+		}
+		try {
+			List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+			return ranges.size() == 1 ? ranges.get(0) : null;
+		} catch (IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Hands a stored file to Tomcat's sendfile support when the connector offers it, otherwise
+	 * lets the storage copy the bytes, which avoids user-space buffers where the platform allows.
+	 */
+	private void writeStored(StoredImage stored, long start, long count,
+							 HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (stored.file() != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+			request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, stored.file().toString());
+			request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+			request.setAttribute(SENDFILE_END_ATTRIBUTE, start + count);
+			return;
+		}
+		stored.transferTo(start, count, Channels.newChannel(response.getOutputStream()));
+	}
+
+	@PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
 	@SecurityRequirement(name = "bearerAuth")
 	@Operation(summary = "Upload a new image", description = "Upload a new image file with optional description")
 	public ResponseEntity<ApiResponse<ImageResponseDto>> uploadImage(
@@ -84,6 +237,23 @@ public class ImageController {
 				HttpStatus.CREATED);
 	}
 
+	@PostMapping(consumes = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE,
+			"image/webp", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+	@SecurityRequirement(name = "bearerAuth")
+	@Operation(summary = "Upload a new image as the request body",
+			description = "Upload a new image sent as the raw request body, which is streamed to storage without multipart buffering")
+	public ResponseEntity<ApiResponse<ImageResponseDto>> uploadImageBody(
+			@RequestParam("fileName") String fileName,
+			@RequestParam(value = "description", required = false) String description,
+			HttpServletRequest request) throws IOException {
+
+		ImageResponseDto uploadedImage = imageService.storeImage(request.getInputStream(), fileName,
+				request.getContentLengthLong(), description);
+		return new ResponseEntity<>(
+				ApiResponse.success("Image uploaded successfully", uploadedImage),
+				HttpStatus.CREATED);
+	}
+
 	@DeleteMapping("/{id}")
 	@SecurityRequirement(name = "bearerAuth")
 	@Operation(summary = "Delete image", description = "Delete an image by its ID")
@@ -2,18 +2,37 @@
 package com.rafalwizen.restaurantcouponsserver.controller;
 
 import com.rafalwizen.restaurantcouponsserver.dto.ApiResponse;
+import com.rafalwizen.restaurantcouponsserver.dto.BatchGetDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponChangesDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponSummaryDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CursorSliceDto;
+import com.rafalwizen.restaurantcouponsserver.service.CouponCatalog;
+import com.rafalwizen.restaurantcouponsserver.service.CouponChangeStream;
+import com.rafalwizen.restaurantcouponsserver.service.CouponResponseCache;
 import com.rafalwizen.restaurantcouponsserver.service.CouponService;
+import com.rafalwizen.restaurantcouponsserver.service.ImageUrlResolver;
+import com.rafalwizen.restaurantcouponsserver.service.SerializedResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/coupons")
@@ -21,10 +40,20 @@ import org.springframework.web.bind.annotation.*;
 public class PublicCouponController {
 
     private final CouponService couponService;
+    private final CouponResponseCache responseCache;
+    private final CouponCatalog couponCatalog;
+    private final CouponChangeStream couponChangeStream;
+    private final ImageUrlResolver imageUrlResolver;
 
     @Autowired
-    public PublicCouponController(CouponService couponService) {
+    public PublicCouponController(CouponService couponService, CouponResponseCache responseCache,
+                                  CouponCatalog couponCatalog, CouponChangeStream couponChangeStream,
+                                  ImageUrlResolver imageUrlResolver) {
         this.couponService = couponService;
+        this.responseCache = responseCache;
+        this.couponCatalog = couponCatalog;
+        this.couponChangeStream = couponChangeStream;
+        this.imageUrlResolver = imageUrlResolver;
     }
 
     @GetMapping
@@ -33,19 +62,134 @@ public class PublicCouponController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "asc") String direction) {
+            @RequestParam(defaultValue = "asc") String direction,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
 
         Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        boolean cached = size == CouponResponseCache.DEFAULT_PAGE_SIZE && sortDirection == Sort.Direction.ASC
+                && CouponResponseCache.DEFAULT_SORT_PROPERTY.equals(sortBy) && responseCache.isCachedPage(page);
+        boolean gzip = cached && acceptsGzip(request, response);
+
+        // Any listing is a function of the active coupon set and its image URLs, so together they
+        // validate every page
+        String etag = "\"v" + couponCatalog.getVersion() + "-" + imageUrlVersion() + (gzip ? "-gz\"" : "\"");
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return null;
+        }
+
+        if (cached) {
+            write(responseCache.activePage(page), gzip, response);
+            return null;
+        }
+
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
 
         Page<CouponSummaryDto> coupons = couponService.getAllActiveCoupons(pageable);
         return ResponseEntity.ok(ApiResponse.success("Active coupons retrieved successfully", coupons));
     }
 
+    @GetMapping(params = "limit")
+    @Operation(summary = "Get active coupons after a cursor", description = "Retrieve a keyset-paginated slice of active coupons without a total count")
+    public ResponseEntity<ApiResponse<CursorSliceDto<CouponSummaryDto>>> getActiveCouponsAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam int limit,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String direction) {
+
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        CursorSliceDto<CouponSummaryDto> coupons = couponService.getActiveCouponsAfter(after, limit, sortBy, sortDirection);
+        return ResponseEntity.ok(ApiResponse.success("Active coupons retrieved successfully", coupons));
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get active coupons by IDs", description = "Retrieve details of up to 100 active coupons in the requested order, listing ids that were not found")
+    public ResponseEntity<ApiResponse<BatchGetDto<CouponDetailDto>>> getCouponsByIds(@RequestParam List<Long> ids) {
+        BatchGetDto<CouponDetailDto> coupons = couponService.getCouponsByIds(ids);
+        return ResponseEntity.ok(ApiResponse.success("Coupons retrieved successfully", coupons));
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get coupon changes", description = "Retrieve coupons created, updated, deactivated or deleted since a change log version")
+    public ResponseEntity<ApiResponse<CouponChangesDto>> getCouponChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+
+        CouponChangesDto changes = couponService.getChangesSince(since, limit);
+        return ResponseEntity.ok(ApiResponse.success("Coupon changes retrieved successfully", changes));
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream coupon changes", description = "Server-Sent Events stream of coupon changes, resumable with the Last-Event-ID header")
+    public SseEmitter streamCouponChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return couponChangeStream.subscribe(lastEventId);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get coupon by ID", description = "Retrieve detailed information about a specific coupon")
-    public ResponseEntity<ApiResponse<CouponDetailDto>> getCouponById(@PathVariable Long id) {
-        CouponDetailDto coupon = couponService.getCouponById(id);
-        return ResponseEntity.ok(ApiResponse.success("Coupon retrieved successfully", coupon));
+    public ResponseEntity<ApiResponse<CouponDetailDto>> getCouponById(@PathVariable Long id,
+                                                                      HttpServletRequest request,
+                                                                      HttpServletResponse response) throws IOException {
+        boolean gzip = acceptsGzip(request, response);
+
+        // Unknown or inactive coupons fall through to the cache, which reports them as not found
+        Optional<String> etag = couponCatalog.findActiveById(id)
+                .map(coupon -> "\"" + id + "-" + timeOf(coupon.getUpdatedAt()) + "-" + imageUrlVersion()
+                        + (gzip ? "-gz\"" : "\""));
+        if (etag.isPresent() && new ServletWebRequest(request, response).checkNotModified(etag.get())) {
+            return null;
+        }
+
+        write(responseCache.activeCoupon(id), gzip, response);
+        return null;
+    }
+
+    /**
+     * Identifies the image URLs embedded in a response: signed URLs change with every signature
+     * window, and unless a base URL is configured they are built against the request's origin.
+     */
+    private String imageUrlVersion() {
+        return imageUrlResolver.signatureExpiry() + "-" + Integer.toHexString(imageUrlResolver.origin().hashCode());
+    }
+
+    private static long timeOf(Date date) {
+        return date != null ? date.getTime() : 0;
+    }
+
+    /**
+     * Writes a pre-serialized body straight to the response, gzip-encoded if the client accepts it.
+     * The handler then returns null, which tells Spring MVC the response is already complete.
+     */
+    private static void write(SerializedResponse cached, boolean gzip, HttpServletResponse response)
+            throws IOException {
+        byte[] body = gzip ? cached.gzipBody() : cached.body();
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Checks whether a response that is available gzip-encoded may be sent that way, and marks the
+     * response as varying by encoding either way.
+     */
+    private static boolean acceptsGzip(HttpServletRequest request, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                // "gzip;q=0" explicitly refuses the encoding
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Items fetched by id in the order they were requested, with the requested ids that did not
+ * resolve listed in {@code missing}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchGetDto<T> {
+    private List<T> content;
+    private List<Long> missing;
+}
@@ -0,0 +1,22 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of one cache since startup. {@code weight} is the summed entry weight, in bytes for
+ * caches bounded by memory, and equals {@code size} for caches bounded by entry count.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDto {
+	private long hits;
+	private long misses;
+	private double hitRate;
+	private long evictions;
+	private long size;
+	private long weight;
+	private long maxWeight;
+}
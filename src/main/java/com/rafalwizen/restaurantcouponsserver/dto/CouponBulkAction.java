@@ -0,0 +1,8 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+public enum CouponBulkAction {
+    ACTIVATE,
+    DEACTIVATE,
+    EXTEND,
+    DELETE
+}
@@ -0,0 +1,21 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Selects coupons by their attributes. All given conditions must hold; {@code validFrom} and
+ * {@code validTo} bound the window the coupon's whole validity must lie within.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponBulkFilterDto {
+    private Date validFrom;
+    private Date validTo;
+    private String namePrefix;
+    private Long imageId;
+}
@@ -0,0 +1,31 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Action applied to the coupons selected by either {@code ids} or {@code filter}. {@code validTo}
+ * is the new end of validity for {@link CouponBulkAction#EXTEND}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponBulkOperationDto {
+    @NotNull(message = "Action is required")
+    private CouponBulkAction action;
+
+    @Size(max = 10000, message = "At most 10000 ids can be given")
+    private List<Long> ids;
+
+    @Valid
+    private CouponBulkFilterDto filter;
+
+    private Date validTo;
+}
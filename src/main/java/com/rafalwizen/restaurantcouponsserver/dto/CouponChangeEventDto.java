@@ -0,0 +1,20 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Payload of a coupon stream event: ids only, clients fetch the details of upserted coupons they
+ * display. {@code version} is the change log version the client is in sync with.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponChangeEventDto {
+    private List<Long> upserted;
+    private List<Long> deleted;
+    private long version;
+}
@@ -0,0 +1,22 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Coupon changes since a client's last sync. Clients apply {@code upserts}, drop the coupons in
+ * {@code deleted} and pass {@code version} as {@code since} on their next sync, repeating
+ * immediately while {@code hasMore} is set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponChangesDto {
+    private List<CouponDetailDto> upserts;
+    private List<Long> deleted;
+    private long version;
+    private boolean hasMore;
+}
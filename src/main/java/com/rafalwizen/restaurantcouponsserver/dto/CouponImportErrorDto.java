@@ -0,0 +1,16 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponImportErrorDto {
+    /**
+     * 1-based position of the coupon in the imported array, or of the record after the CSV header.
+     */
+    private long row;
+    private String message;
+}
@@ -0,0 +1,21 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk coupon import. Only the first errors are listed, {@code failed} counts all
+ * rejected rows.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponImportReportDto {
+    private long rows;
+    private long imported;
+    private long failed;
+    private List<CouponImportErrorDto> errors;
+}
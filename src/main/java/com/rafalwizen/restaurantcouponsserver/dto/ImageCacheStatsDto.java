@@ -0,0 +1,13 @@
+package com.rafalwizen.restaurantcouponsserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageCacheStatsDto {
+	private CacheStatsDto metadata;
+	private CacheStatsDto bodies;
+}
@@ -12,6 +12,8 @@ public class ImageResponseDto {
 	private String fileName;
 	private String fileType;
 	private Long fileSize;
+	private Integer width;
+	private Integer height;
 	private String description;
 	private String url;
 }
\ No newline at end of file
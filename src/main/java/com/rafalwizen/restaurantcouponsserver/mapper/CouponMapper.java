@@ -0,0 +1,38 @@
+package com.rafalwizen.restaurantcouponsserver.mapper;
+
+import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponSummaryDto;
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponSummaryView;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * Generated at build time. Unmapped target properties fail the build, so a field added to an
+ * entity or DTO has to be mapped or explicitly ignored here.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface CouponMapper {
+
+    @Mapping(target = "imageUrl", ignore = true)
+    CouponDetailDto toDetailDto(Coupon coupon);
+
+    @Mapping(target = "imageUrl", ignore = true)
+    CouponSummaryDto toSummaryDto(Coupon coupon);
+
+    @Mapping(target = "imageUrl", ignore = true)
+    CouponSummaryDto toSummaryDto(CouponSummaryView view);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    Coupon toEntity(CouponCreateDto couponDto);
+
+    /**
+     * Shallow copy, detached from any persistence context.
+     */
+    Coupon copy(Coupon coupon);
+}
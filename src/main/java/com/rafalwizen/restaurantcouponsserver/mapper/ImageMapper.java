@@ -0,0 +1,18 @@
+package com.rafalwizen.restaurantcouponsserver.mapper;
+
+import com.rafalwizen.restaurantcouponsserver.dto.ImageDto;
+import com.rafalwizen.restaurantcouponsserver.dto.ImageResponseDto;
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface ImageMapper {
+
+	@Mapping(target = "url", ignore = true)
+	ImageResponseDto toResponseDto(Image image);
+
+	ImageDto toDto(Image image);
+}
@@ -12,7 +12,12 @@ import java.math.BigDecimal;
 import java.util.Date;
 
 @Entity
-@Table(name = "coupons")
+@Table(name = "coupons", indexes = {
+        // Created by V2__add_coupon_validity_index.sql. It narrows the active-coupon queries to the
+        // live rows through the range on valid_to; the trailing id comes after that range, so
+        // ORDER BY id listings still sort those rows rather than reading them in index order
+        @Index(name = "idx_coupons_active_validity", columnList = "is_active, valid_to, valid_from, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,40 @@
+package com.rafalwizen.restaurantcouponsserver.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Entry of the coupon change log. Only records that a coupon changed; what the change was is
+ * read from the coupon itself when clients sync, so repeated changes collapse into one.
+ */
+@Entity
+@Table(name = "coupon_changes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "changed_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date changedAt;
+
+    public CouponChange(Long couponId) {
+        this.couponId = couponId;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        changedAt = new Date();
+    }
+}
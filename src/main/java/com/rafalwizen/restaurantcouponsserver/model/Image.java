@@ -33,9 +33,19 @@ public class Image {
 
 	private Long fileSize;
 
+	private Integer width;
+
+	private Integer height;
+
 	@Size(max = 255)
 	private String description;
 
+	@Column(name = "content_hash", length = 64, unique = true)
+	private String contentHash;
+
+	@Column(name = "ref_count", nullable = false)
+	private int refCount = 1;
+
 	@Column(name = "created_at")
 	@Temporal(TemporalType.TIMESTAMP)
 	private Date createdAt;
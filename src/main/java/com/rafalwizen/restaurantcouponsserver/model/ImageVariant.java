@@ -0,0 +1,49 @@
+package com.rafalwizen.restaurantcouponsserver.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Entity
+@Table(name = "image_variants",
+		uniqueConstraints = @UniqueConstraint(name = "uk_image_variants_image_width_type",
+				columnNames = {"image_id", "width", "file_type"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageVariant {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(name = "image_id", nullable = false)
+	private Long imageId;
+
+	@Column(nullable = false)
+	private Integer width;
+
+	@Column(nullable = false)
+	private Integer height;
+
+	@Column(nullable = false)
+	private String filePath;
+
+	@Column(nullable = false)
+	private String fileType;
+
+	@Column(nullable = false)
+	private Long fileSize;
+
+	@Column(name = "created_at")
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date createdAt;
+
+	@PrePersist
+	protected void onCreate() {
+		createdAt = new Date();
+	}
+}
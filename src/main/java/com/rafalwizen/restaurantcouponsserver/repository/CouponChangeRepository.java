@@ -0,0 +1,18 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import com.rafalwizen.restaurantcouponsserver.model.CouponChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CouponChangeRepository extends JpaRepository<CouponChange, Long>, CouponChangeRepositoryCustom {
+
+    List<CouponChange> findBySeqGreaterThanOrderBySeqAsc(Long since, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(c.seq), 0) FROM CouponChange c")
+    long findLatestSeq();
+}
@@ -0,0 +1,11 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import java.util.List;
+
+public interface CouponChangeRepositoryCustom {
+
+    /**
+     * Records a change of each coupon with a single multi-row INSERT statement.
+     */
+    void appendAll(List<Long> couponIds);
+}
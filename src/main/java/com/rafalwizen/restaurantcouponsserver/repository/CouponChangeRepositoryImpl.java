@@ -0,0 +1,38 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bulk writes for {@link CouponChangeRepository}.
+ */
+public class CouponChangeRepositoryImpl implements CouponChangeRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CouponChangeRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void appendAll(List<Long> couponIds) {
+        if (couponIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO coupon_changes (coupon_id, changed_at) VALUES "
+                + String.join(", ", Collections.nCopies(couponIds.size(), "(?, ?)"));
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        Object[] args = new Object[couponIds.size() * 2];
+        for (int i = 0; i < couponIds.size(); i++) {
+            args[2 * i] = couponIds.get(i);
+            args[2 * i + 1] = now;
+        }
+        jdbcTemplate.update(sql, args);
+    }
+}
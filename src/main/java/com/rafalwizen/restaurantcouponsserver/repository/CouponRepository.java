@@ -1,24 +1,53 @@
 package com.rafalwizen.restaurantcouponsserver.repository;
 
 import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface CouponRepository extends JpaRepository<Coupon, Long> {
+public interface CouponRepository extends JpaRepository<Coupon, Long>, CouponRepositoryCustom {
 
-    @Query("SELECT c FROM Coupon c WHERE c.isActive = true AND c.validFrom <= ?1 AND c.validTo >= ?1")
-    Page<Coupon> findAllActiveCoupons(Date currentDate, Pageable pageable);
+    @Query(value = "SELECT new com.rafalwizen.restaurantcouponsserver.repository.CouponSummaryView("
+            + "c.id, c.name, c.discountValue, c.imageId) FROM Coupon c",
+            countQuery = "SELECT COUNT(c) FROM Coupon c")
+    Page<CouponSummaryView> findAllSummaries(Pageable pageable);
+
+    @Query(value = "SELECT new com.rafalwizen.restaurantcouponsserver.repository.CouponSummaryView("
+            + "c.id, c.name, c.discountValue, c.imageId) FROM Coupon c "
+            + "WHERE c.isActive = true AND c.validFrom <= ?1 AND c.validTo >= ?1",
+            countQuery = "SELECT COUNT(c) FROM Coupon c WHERE c.isActive = true AND c.validFrom <= ?1 AND c.validTo >= ?1")
+    Page<CouponSummaryView> findActiveSummaries(Date currentDate, Pageable pageable);
 
     @Query("SELECT c FROM Coupon c WHERE c.isActive = true AND c.validFrom <= ?1 AND c.validTo >= ?1")
     List<Coupon> findAllActiveCoupons(Date currentDate);
 
     @Query("SELECT c FROM Coupon c WHERE c.id = ?1 AND c.isActive = true AND c.validFrom <= ?2 AND c.validTo >= ?2")
     Coupon findActiveById(Long id, Date currentDate);
-}
\ No newline at end of file
+
+    @Query("SELECT MIN(c.validFrom) FROM Coupon c WHERE c.isActive = true AND c.validFrom > ?1")
+    Date findNextActivation(Date currentDate);
+
+    /**
+     * Forward-only read of every coupon for exports. Must be consumed inside a transaction and
+     * closed. MySQL Connector/J only honours the fetch size with {@code useCursorFetch=true}, which
+     * {@code application.properties} sets on every pooled connection; without it the driver buffers
+     * the whole result. A server-side cursor is preferred over {@code Integer.MIN_VALUE} streaming
+     * because it leaves the connection usable for other statements while the export runs.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM Coupon c ORDER BY c.id")
+    Stream<Coupon> streamAll();
+}
@@ -0,0 +1,46 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import org.springframework.data.domain.Sort;
+
+import java.util.Date;
+import java.util.List;
+
+public interface CouponRepositoryCustom {
+
+    /**
+     * Seeks past the position {@code (afterKey, afterId)} in the order of {@code sortProperty}
+     * then id, selecting only the summary columns and the sort key. Starts from the beginning
+     * when {@code afterId} is null. Null keys sort lowest, first ascending and last descending,
+     * and a null {@code afterKey} is a position among them.
+     */
+    List<SeekRow> findSummariesAfter(String sortProperty, Sort.Direction direction,
+                                     Object afterKey, Long afterId, int limit);
+
+    /**
+     * Inserts the coupons with a single multi-row INSERT statement, bypassing the persistence
+     * context. Identity keys rule out Hibernate's own insert batching.
+     *
+     * @return the generated ids, in the order of {@code coupons}
+     */
+    List<Long> insertAll(List<Coupon> coupons);
+
+    /*
+     * Bulk statements over a selection. Each records a change log entry for every coupon it
+     * affects before running, in the same transaction, and returns the number of coupons affected.
+     * Coupons already in the target state are not counted. They bypass the persistence context
+     * and entity callbacks, so updatedAt is set explicitly.
+     */
+
+    int setActive(CouponSelection selection, boolean active);
+
+    /**
+     * Moves the end of validity of the selected coupons that end earlier to {@code validTo}.
+     */
+    int extendValidTo(CouponSelection selection, Date validTo);
+
+    int deleteAll(CouponSelection selection);
+
+    record SeekRow(CouponSummaryView summary, Object sortKey) {
+    }
+}
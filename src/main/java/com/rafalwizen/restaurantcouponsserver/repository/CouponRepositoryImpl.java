@@ -0,0 +1,215 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Seek queries and bulk inserts for {@link CouponRepository}. The sort property is interpolated
+ * into the JPQL, so callers must only pass entity property names, never raw request input.
+ */
+public class CouponRepositoryImpl implements CouponRepositoryCustom {
+
+    private static final String INSERT_PREFIX = "INSERT INTO coupons (name, description, discount_value, valid_from, "
+            + "valid_to, terms_and_conditions, is_active, image_id, created_at, updated_at) VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Sort columns without a NOT NULL constraint, whose seek predicates have to place null keys
+    private static final Set<String> NULLABLE_SORT_PROPERTIES = Set.of("createdAt", "updatedAt");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CouponRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<SeekRow> findSummariesAfter(String sortProperty, Sort.Direction direction,
+                                            Object afterKey, Long afterId, int limit) {
+        String key = "c." + sortProperty;
+        boolean ascending = direction.isAscending();
+        String comparison = ascending ? ">" : "<";
+        String order = ascending ? " ASC" : " DESC";
+        boolean byId = "id".equals(sortProperty);
+        boolean nullable = NULLABLE_SORT_PROPERTIES.contains(sortProperty);
+
+        StringBuilder jpql = new StringBuilder(
+                "SELECT c.id, c.name, c.discountValue, c.imageId, " + key + " FROM Coupon c");
+        if (afterId != null) {
+            String sameKey = afterKey == null ? key + " IS NULL" : key + " = :afterKey";
+            jpql.append(" WHERE ");
+            if (byId) {
+                jpql.append("c.id ").append(comparison).append(" :afterId");
+            } else if (afterKey == null) {
+                // Nulls sort lowest, so only non-null keys follow them ascending and nothing descending
+                jpql.append("(").append(sameKey).append(" AND c.id ").append(comparison).append(" :afterId)");
+                if (ascending) {
+                    jpql.append(" OR ").append(key).append(" IS NOT NULL");
+                }
+            } else {
+                jpql.append(key).append(" ").append(comparison).append(" :afterKey OR (")
+                        .append(sameKey).append(" AND c.id ").append(comparison).append(" :afterId)");
+                if (nullable && !ascending) {
+                    jpql.append(" OR ").append(key).append(" IS NULL");
+                }
+            }
+        }
+        jpql.append(" ORDER BY ").append(key).append(order);
+        if (nullable) {
+            // Nulls sort lowest in both directions, as in the in-memory catalog
+            jpql.append(ascending ? " NULLS FIRST" : " NULLS LAST");
+        }
+        if (!byId) {
+            jpql.append(", c.id").append(order);
+        }
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class)
+                .setMaxResults(limit);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+            if (!byId && afterKey != null) {
+                query.setParameter("afterKey", afterKey);
+            }
+        }
+
+        return query.getResultList().stream()
+                .map(row -> new SeekRow(
+                        new CouponSummaryView((Long) row[0], (String) row[1], (BigDecimal) row[2], (Long) row[3]),
+                        row[4]))
+                .toList();
+    }
+
+    @Override
+    public List<Long> insertAll(List<Coupon> coupons) {
+        if (coupons.isEmpty()) {
+            return List.of();
+        }
+        String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(coupons.size(), INSERT_ROW));
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            int index = 1;
+            for (Coupon coupon : coupons) {
+                statement.setString(index++, coupon.getName());
+                statement.setString(index++, coupon.getDescription());
+                statement.setBigDecimal(index++, coupon.getDiscountValue());
+                statement.setTimestamp(index++, toTimestamp(coupon.getValidFrom()));
+                statement.setTimestamp(index++, toTimestamp(coupon.getValidTo()));
+                statement.setString(index++, coupon.getTermsAndConditions());
+                statement.setObject(index++, coupon.getIsActive(), Types.BOOLEAN);
+                statement.setObject(index++, coupon.getImageId(), Types.BIGINT);
+                statement.setTimestamp(index++, now);
+                statement.setTimestamp(index++, now);
+            }
+            return statement;
+        }, keyHolder);
+
+        List<Long> ids = new ArrayList<>(coupons.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    @Override
+    public int setActive(CouponSelection selection, boolean active) {
+        Where where = where(selection).and("(c.isActive IS NULL OR c.isActive <> :active)", "active", active);
+        return recordAndExecute(where, "UPDATE Coupon c SET c.isActive = :active, c.updatedAt = :now", true);
+    }
+
+    @Override
+    public int extendValidTo(CouponSelection selection, Date validTo) {
+        Where where = where(selection).and("c.validTo < :newValidTo", "newValidTo", validTo);
+        return recordAndExecute(where, "UPDATE Coupon c SET c.validTo = :newValidTo, c.updatedAt = :now", true);
+    }
+
+    @Override
+    public int deleteAll(CouponSelection selection) {
+        return recordAndExecute(where(selection), "DELETE FROM Coupon c", false);
+    }
+
+    /**
+     * Appends a change log entry for every coupon matching {@code where}, then runs the statement
+     * against the same coupons. The log goes first as the statement may change what matches.
+     */
+    private int recordAndExecute(Where where, String statement, boolean bindNow) {
+        Date now = new Date();
+        Query record = entityManager.createQuery(
+                "INSERT INTO CouponChange (couponId, changedAt) SELECT c.id, :now FROM Coupon c" + where.clause);
+        where.bind(record).setParameter("now", now);
+        record.executeUpdate();
+
+        Query query = where.bind(entityManager.createQuery(statement + where.clause));
+        if (bindNow) {
+            query.setParameter("now", now);
+        }
+        return query.executeUpdate();
+    }
+
+    private static Where where(CouponSelection selection) {
+        Where where = new Where();
+        if (selection.ids() != null) {
+            where.and("c.id IN :ids", "ids", selection.ids());
+        }
+        if (selection.validFrom() != null) {
+            where.and("c.validFrom >= :validFrom", "validFrom", selection.validFrom());
+        }
+        if (selection.validTo() != null) {
+            where.and("c.validTo <= :validTo", "validTo", selection.validTo());
+        }
+        if (selection.namePrefix() != null) {
+            String escaped = selection.namePrefix().replace("!", "!!").replace("%", "!%").replace("_", "!_");
+            where.and("c.name LIKE :namePrefix ESCAPE '!'", "namePrefix", escaped + "%");
+        }
+        if (selection.imageId() != null) {
+            where.and("c.imageId = :imageId", "imageId", selection.imageId());
+        }
+        return where;
+    }
+
+    private static final class Where {
+
+        private final StringBuilder clause = new StringBuilder();
+        private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+        Where and(String condition, String parameter, Object value) {
+            clause.append(clause.isEmpty() ? " WHERE " : " AND ").append(condition);
+            parameters.put(parameter, value);
+            return this;
+        }
+
+        Query bind(Query query) {
+            parameters.forEach(query::setParameter);
+            return query;
+        }
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+}
@@ -0,0 +1,19 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Set of coupons targeted by a bulk statement: the given ids, or the coupons matching every
+ * non-null attribute condition.
+ */
+public record CouponSelection(Collection<Long> ids, Date validFrom, Date validTo, String namePrefix, Long imageId) {
+
+    public static CouponSelection ofIds(Collection<Long> ids) {
+        return new CouponSelection(ids, null, null, null, null);
+    }
+
+    public boolean isEmpty() {
+        return ids == null && validFrom == null && validTo == null && namePrefix == null && imageId == null;
+    }
+}
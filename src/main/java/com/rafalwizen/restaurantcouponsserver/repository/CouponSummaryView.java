@@ -0,0 +1,11 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only projection of the columns needed for coupon listings. Selected with a constructor
+ * expression, so listings neither load the long text columns nor put entities into the
+ * persistence context.
+ */
+public record CouponSummaryView(Long id, String name, BigDecimal discountValue, Long imageId) {
+}
@@ -1,9 +1,68 @@
 package com.rafalwizen.restaurantcouponsserver.repository;
 
 import com.rafalwizen.restaurantcouponsserver.model.Image;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ImageRepository extends JpaRepository<Image, Long> {
-}
\ No newline at end of file
+
+	Optional<Image> findByContentHash(String contentHash);
+
+	boolean existsByContentHash(String contentHash);
+
+	/**
+	 * Reads an image and locks its row until the transaction ends, so no upload can add a
+	 * reference to it while the caller decides whether to delete it.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT i FROM Image i WHERE i.id = ?1")
+	Optional<Image> findByIdForUpdate(Long id);
+
+	/**
+	 * Adds a reference to the image with the given content. Waits for the lock of a concurrent
+	 * {@link #findByIdForUpdate(Long)}, and never revives an image left without references.
+	 *
+	 * @return 1 if such an image exists, otherwise 0
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE Image i SET i.refCount = i.refCount + 1 WHERE i.contentHash = ?1 AND i.refCount > 0")
+	int incrementRefCount(String contentHash);
+
+	/**
+	 * Drops a reference to an image unless it is the last one. Callers hold the lock taken by
+	 * {@link #findByIdForUpdate(Long)}.
+	 *
+	 * @return 1 if other references remain, 0 if the caller holds the last one
+	 */
+	@Modifying
+	@Query("UPDATE Image i SET i.refCount = i.refCount - 1 WHERE i.id = ?1 AND i.refCount > 1")
+	int decrementRefCount(Long id);
+
+	@Query("SELECT i.id FROM Image i WHERE i.id IN ?1")
+	List<Long> findExistingIds(Collection<Long> ids);
+
+	/**
+	 * Forward-only read of every image for exports, see {@link CouponRepository#streamAll()}.
+	 */
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("SELECT i FROM Image i ORDER BY i.id")
+	Stream<Image> streamAll();
+}
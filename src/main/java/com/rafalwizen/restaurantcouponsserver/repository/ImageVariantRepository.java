@@ -0,0 +1,15 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import com.rafalwizen.restaurantcouponsserver.model.ImageVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ImageVariantRepository extends JpaRepository<ImageVariant, Long> {
+
+	List<ImageVariant> findByImageIdOrderByWidthAsc(Long imageId);
+
+	void deleteByImageId(Long imageId);
+}
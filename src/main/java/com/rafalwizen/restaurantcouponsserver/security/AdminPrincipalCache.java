@@ -0,0 +1,57 @@
+package com.rafalwizen.restaurantcouponsserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rafalwizen.restaurantcouponsserver.service.AdminService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded, expiring cache of authenticated admin principals, so token-authenticated requests do
+ * not query the admins table.
+ * <p>
+ * The application has no endpoint that edits or removes admins, so changes made directly in the
+ * database are only picked up once the entry expires: {@code app.security.principal-cache.ttl}
+ * (five minutes by default) is the upper bound on how long a removed or demoted admin keeps
+ * access with a still-valid token. Misses are not cached, so newly created admins are seen at once.
+ */
+@Component
+public class AdminPrincipalCache {
+
+    private final AdminService adminService;
+    private final Cache<String, UserDetails> principals;
+
+    @Autowired
+    public AdminPrincipalCache(AdminService adminService,
+                               @Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+                               @Value("${app.security.principal-cache.ttl:PT5M}") Duration ttl) {
+        this.adminService = adminService;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Returns the principal for a username, loading it on a miss.
+     *
+     * @throws UsernameNotFoundException if no admin exists with that username
+     */
+    public UserDetails get(String username) {
+        return principals.get(username, this::load);
+    }
+
+    private UserDetails load(String username) {
+        UserDetails loaded = adminService.loadUserByUsername(username);
+        // Only the identity and authorities are needed after login, so the hash is not kept around
+        return User.withUserDetails(loaded)
+                .password("")
+                .build();
+    }
+}
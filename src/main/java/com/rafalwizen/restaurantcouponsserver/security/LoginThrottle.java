@@ -0,0 +1,78 @@
+package com.rafalwizen.restaurantcouponsserver.security;
+
+import com.rafalwizen.restaurantcouponsserver.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per client address and per username rate limit for login attempts, kept in memory.
+ * <p>
+ * The address is checked first, so a single client cycling through usernames cannot grow the
+ * username table faster than its own address allows. Buckets that have refilled completely carry
+ * no information and are evicted periodically.
+ */
+@Component
+public class LoginThrottle {
+
+    private final Limit addressLimit;
+    private final Limit usernameLimit;
+    private final ConcurrentMap<String, TokenBucket> addressBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TokenBucket> usernameBuckets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LoginThrottle(@Value("${app.security.login-throttle.per-address.capacity:20}") long addressCapacity,
+                         @Value("${app.security.login-throttle.per-address.refill-period:PT1M}") Duration addressRefillPeriod,
+                         @Value("${app.security.login-throttle.per-username.capacity:5}") long usernameCapacity,
+                         @Value("${app.security.login-throttle.per-username.refill-period:PT1M}") Duration usernameRefillPeriod) {
+        this.addressLimit = new Limit(addressCapacity, addressRefillPeriod);
+        this.usernameLimit = new Limit(usernameCapacity, usernameRefillPeriod);
+    }
+
+    /**
+     * Records a login attempt.
+     *
+     * @throws TooManyRequestsException if the address or the username has no attempts left
+     */
+    public void acquire(String address, String username) {
+        long now = System.nanoTime();
+        long wait = addressLimit.tryConsume(addressBuckets, address, now);
+        if (wait == 0 && username != null) {
+            wait = usernameLimit.tryConsume(usernameBuckets, username.toLowerCase(Locale.ROOT), now);
+        }
+        if (wait > 0) {
+            throw new TooManyRequestsException("Too many login attempts, please try again later",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-throttle.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        addressBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        usernameBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int trackedKeys() {
+        return addressBuckets.size() + usernameBuckets.size();
+    }
+
+    private record Limit(long capacity, Duration refillPeriod) {
+
+        long tryConsume(ConcurrentMap<String, TokenBucket> buckets, String key, long now) {
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) {
+                double tokensPerNano = (double) capacity / refillPeriod.toNanos();
+                bucket = buckets.computeIfAbsent(key, ignored -> new TokenBucket(capacity, tokensPerNano, now));
+            }
+            return bucket.tryConsume(now);
+        }
+    }
+}
@@ -1,43 +1,72 @@
 package com.rafalwizen.restaurantcouponsserver.security.jwt;
 
-import com.rafalwizen.restaurantcouponsserver.service.AdminService;
+import com.rafalwizen.restaurantcouponsserver.security.AdminPrincipalCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private final List<RequestMatcher> publicReadMatchers;
+
     @Autowired
     private JwtTokenProvider tokenProvider;
 
     @Autowired
-    private AdminService adminService;
+    private AdminPrincipalCache principalCache;
+
+    /**
+     * @param publicReadPaths path patterns of anonymous GET routes; requests to them are passed
+     *                        through without looking at any token, so they must not serve
+     *                        anything that depends on the caller being authenticated
+     */
+    public JwtAuthenticationFilter(List<String> publicReadPaths) {
+        this.publicReadMatchers = publicReadPaths.stream()
+                .filter(StringUtils::hasText)
+                .map(path -> (RequestMatcher) new AntPathRequestMatcher(path.trim(), HttpMethod.GET.name()))
+                .toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        for (RequestMatcher matcher : publicReadMatchers) {
+            if (matcher.matches(request)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = getJwtFromRequest(request);
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromJWT(jwt);
-
-                UserDetails userDetails = adminService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (StringUtils.hasText(jwt)) {
+                authenticate(jwt, request);
             }
+        } catch (JwtException | IllegalArgumentException | UsernameNotFoundException ex) {
+            // Also covers tokens of admins removed since they were issued
+            logger.debug("Rejected invalid JWT", ex);
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
         }
@@ -45,6 +74,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Authenticates with the authorities of the cached principal, so a role change takes effect
+     * once its cache entry expires. The roles claim only has to agree with them: a token issued
+     * before the change is rejected rather than trusted. Tokens issued before roles became a
+     * claim carry none and are not checked.
+     */
+    private void authenticate(String jwt, HttpServletRequest request) {
+        Claims claims = tokenProvider.parseToken(jwt);
+        UserDetails userDetails = principalCache.get(claims.getSubject());
+
+        List<String> roles = tokenProvider.getRoles(claims);
+        if (!roles.isEmpty() && !new HashSet<>(roles).equals(AuthorityUtils.authorityListToSet(userDetails.getAuthorities()))) {
+            logger.debug("Rejected JWT whose roles no longer match those of " + claims.getSubject());
+            return;
+        }
+
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
@@ -52,4 +104,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         return null;
     }
-}
\ No newline at end of file
+}
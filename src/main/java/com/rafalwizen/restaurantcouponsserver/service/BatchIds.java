@@ -0,0 +1,39 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.exception.BadRequestException;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validation of the id lists accepted by batch lookups.
+ */
+final class BatchIds {
+
+    static final int MAX_IDS = 100;
+
+    private BatchIds() {
+    }
+
+    /**
+     * Returns the distinct ids in their first-requested order.
+     *
+     * @throws BadRequestException if no ids or more than {@value #MAX_IDS} distinct ids are given
+     */
+    static Set<Long> distinct(List<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                distinct.add(id);
+            }
+        }
+        if (distinct.isEmpty()) {
+            throw new BadRequestException("At least one id is required");
+        }
+        if (distinct.size() > MAX_IDS) {
+            throw new BadRequestException("At most " + MAX_IDS + " ids can be requested at once");
+        }
+        return distinct;
+    }
+}
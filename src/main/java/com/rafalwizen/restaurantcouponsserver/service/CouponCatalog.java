@@ -0,0 +1,169 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.mapper.CouponMapper;
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Process-local cache of the currently active coupons, so public reads never touch the database.
+ * <p>
+ * The snapshot is rebuilt after every committed coupon change, when the next validity boundary
+ * passes and periodically to pick up changes made by other instances.
+ */
+@Component
+public class CouponCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(CouponCatalog.class);
+
+    private final CouponRepository couponRepository;
+    private final CouponMapper couponMapper;
+    private final long refreshIntervalMs;
+
+    private volatile CouponCatalogSnapshot snapshot;
+    // Seeded from the clock so versions handed out before a restart are not reused after it
+    private long nextVersion = System.currentTimeMillis();
+
+    @Autowired
+    public CouponCatalog(CouponRepository couponRepository,
+                         CouponMapper couponMapper,
+                         @Value("${app.catalog.refresh-interval-ms:300000}") long refreshIntervalMs) {
+        this.couponRepository = couponRepository;
+        this.couponMapper = couponMapper;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    public Optional<Page<Coupon>> findActive(Pageable pageable) {
+        return current().sorted(pageable.getSort())
+                .map(coupons -> toPage(coupons, pageable));
+    }
+
+    /**
+     * Returns up to {@code limit} active coupons following {@code after} in the given sort.
+     */
+    public Optional<List<Coupon>> findActiveAfter(Sort sort, Coupon after, int limit) {
+        return current().sliceAfter(sort, after, limit);
+    }
+
+    public Optional<Coupon> findActiveById(Long id) {
+        return current().findById(id);
+    }
+
+    /**
+     * Version of the active coupon set, changing whenever any active coupon is added, removed or
+     * modified.
+     */
+    public long getVersion() {
+        return current().getVersion();
+    }
+
+    /**
+     * Returns the current snapshot, rebuilding it inline only when it has never been loaded or a
+     * validity boundary has already passed.
+     */
+    public CouponCatalogSnapshot current() {
+        CouponCatalogSnapshot current = snapshot;
+        if (current == null || current.isExpired(System.currentTimeMillis())) {
+            return refreshIfStale();
+        }
+        return current;
+    }
+
+    /**
+     * Rebuilds the snapshot from the database and swaps it in atomically.
+     */
+    public synchronized CouponCatalogSnapshot refresh() {
+        Date now = new Date();
+        List<Coupon> active = couponRepository.findAllActiveCoupons(now).stream()
+                .map(couponMapper::copy)
+                .toList();
+
+        long validUntil = Long.MAX_VALUE;
+        for (Coupon coupon : active) {
+            // validTo is inclusive, so the coupon drops out one millisecond later
+            validUntil = Math.min(validUntil, coupon.getValidTo().getTime() + 1);
+        }
+        Date nextActivation = couponRepository.findNextActivation(now);
+        if (nextActivation != null) {
+            validUntil = Math.min(validUntil, nextActivation.getTime());
+        }
+
+        // The version identifies the content, so clients validating against it only see a new one
+        // when a coupon actually changed, not after every scheduled or boundary refresh
+        CouponCatalogSnapshot previous = snapshot;
+        CouponCatalogSnapshot rebuilt = new CouponCatalogSnapshot(0, now.getTime(), validUntil, active);
+        long version = previous != null && previous.getCoupons().equals(rebuilt.getCoupons())
+                ? previous.getVersion()
+                : nextVersion++;
+        rebuilt = rebuilt.withVersion(version);
+        snapshot = rebuilt;
+        return rebuilt;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            log.warn("Could not load coupon catalog on startup, it will be loaded on first use", ex);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCouponChanged(CouponCatalogChangedEvent event) {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            // Drop the snapshot so the next read reloads it instead of serving stale data
+            snapshot = null;
+            log.error("Could not refresh coupon catalog after change of coupon {}", event.couponId(), ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.boundary-check-interval-ms:1000}")
+    public void refreshOnBoundary() {
+        CouponCatalogSnapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current == null || current.isExpired(now) || now - current.getBuiltAt() >= refreshIntervalMs) {
+            try {
+                refresh();
+            } catch (RuntimeException ex) {
+                log.error("Scheduled coupon catalog refresh failed", ex);
+            }
+        }
+    }
+
+    private synchronized CouponCatalogSnapshot refreshIfStale() {
+        // Another thread may have rebuilt the snapshot while this one waited for the lock
+        CouponCatalogSnapshot current = snapshot;
+        if (current != null && !current.isExpired(System.currentTimeMillis())) {
+            return current;
+        }
+        return refresh();
+    }
+
+    private static Page<Coupon> toPage(List<Coupon> coupons, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(coupons, pageable, coupons.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), coupons.size());
+        int to = Math.min(from + pageable.getPageSize(), coupons.size());
+        return new PageImpl<>(coupons.subList(from, to), pageable, coupons.size());
+    }
+}
@@ -0,0 +1,10 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+/**
+ * Published by {@link CouponService} whenever a coupon is created, updated or deleted, and with a
+ * null {@code couponId} after bulk changes to many coupons.
+ * Listeners that keep derived state (such as {@link CouponCatalog}) react once the surrounding
+ * transaction has committed.
+ */
+public record CouponCatalogChangedEvent(Long couponId) {
+}
@@ -0,0 +1,132 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable view of the coupons that were active when the snapshot was built. The snapshot stays
+ * accurate until {@link #getValidUntil()}, the next moment a coupon starts or stops being valid.
+ * <p>
+ * Coupons held here are detached copies and must be treated as read-only.
+ */
+public final class CouponCatalogSnapshot {
+
+    private final long version;
+    private final long builtAt;
+    private final long validUntil;
+    private final List<Coupon> coupons;
+    private final Map<Long, Coupon> couponsById;
+    private final Map<Sort, List<Coupon>> sortedViews = new ConcurrentHashMap<>();
+
+    CouponCatalogSnapshot(long version, long builtAt, long validUntil, List<Coupon> coupons) {
+        this.version = version;
+        this.builtAt = builtAt;
+        this.validUntil = validUntil;
+        this.coupons = coupons.stream()
+                .sorted(CouponSortField.ID.comparator())
+                .toList();
+
+        Map<Long, Coupon> byId = new LinkedHashMap<>();
+        this.coupons.forEach(coupon -> byId.put(coupon.getId(), coupon));
+        this.couponsById = Map.copyOf(byId);
+    }
+
+    private CouponCatalogSnapshot(CouponCatalogSnapshot source, long version) {
+        this.version = version;
+        this.builtAt = source.builtAt;
+        this.validUntil = source.validUntil;
+        this.coupons = source.coupons;
+        this.couponsById = source.couponsById;
+    }
+
+    CouponCatalogSnapshot withVersion(long version) {
+        return version == this.version ? this : new CouponCatalogSnapshot(this, version);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    public long getValidUntil() {
+        return validUntil;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= validUntil;
+    }
+
+    public List<Coupon> getCoupons() {
+        return coupons;
+    }
+
+    public Optional<Coupon> findById(Long id) {
+        return Optional.ofNullable(couponsById.get(id));
+    }
+
+    /**
+     * Returns the coupons ordered by the given sort, or empty if the sort references a property
+     * that cannot be ordered in memory. Views are computed once per sort and reused.
+     */
+    public Optional<List<Coupon>> sorted(Sort sort) {
+        if (sort.isUnsorted()) {
+            return Optional.of(coupons);
+        }
+        Comparator<Coupon> comparator = toComparator(sort);
+        if (comparator == null) {
+            return Optional.empty();
+        }
+        return Optional.of(sortedViews.computeIfAbsent(sort, key -> coupons.stream()
+                .sorted(comparator)
+                .toList()));
+    }
+
+    /**
+     * Returns up to {@code limit} coupons that follow {@code after} in the given sort, or all
+     * coupons from the start when {@code after} is null. The position is found by binary search,
+     * so deep positions cost the same as the first one.
+     */
+    public Optional<List<Coupon>> sliceAfter(Sort sort, Coupon after, int limit) {
+        Comparator<Coupon> comparator = toComparator(sort);
+        if (comparator == null) {
+            return Optional.empty();
+        }
+        List<Coupon> view = sorted(sort).orElseThrow();
+        int start = 0;
+        if (after != null) {
+            int index = Collections.binarySearch(view, after, comparator);
+            start = index >= 0 ? index + 1 : -index - 1;
+        }
+        return Optional.of(view.subList(start, Math.min(start + limit, view.size())));
+    }
+
+    private static Comparator<Coupon> toComparator(Sort sort) {
+        if (sort.isUnsorted()) {
+            return CouponSortField.ID.comparator();
+        }
+        Comparator<Coupon> comparator = null;
+        for (Sort.Order order : sort) {
+            Optional<CouponSortField> field = CouponSortField.fromProperty(order.getProperty());
+            if (field.isEmpty() || order.isIgnoreCase()) {
+                return null;
+            }
+            Comparator<Coupon> next = order.isAscending()
+                    ? field.get().comparator()
+                    : field.get().comparator().reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        // Break ties by id so page boundaries are stable between requests
+        return comparator.thenComparing(CouponSortField.ID.comparator());
+    }
+}
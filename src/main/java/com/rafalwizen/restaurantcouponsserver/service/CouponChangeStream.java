@@ -0,0 +1,364 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponChangeEventDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponChangesDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
+import com.rafalwizen.restaurantcouponsserver.exception.BadRequestException;
+import com.rafalwizen.restaurantcouponsserver.exception.TooManyRequestsException;
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes coupon changes to Server-Sent Events subscribers.
+ * <p>
+ * {@code changes} events carry the ids changed in the change log and use its version as event id,
+ * so a reconnecting client resumes from its {@code Last-Event-ID}. {@code boundary} events carry
+ * the coupons that started or stopped being valid with the passing of time, which the change log
+ * does not record. Each event is serialized once and queued for every subscriber.
+ * <p>
+ * What to send is decided on the single stream executor; the writes happen per subscriber on the
+ * send executor, so a slow client only delays itself. A subscriber that falls more than
+ * {@code app.coupons.stream.max-pending-events} events behind is completed and reconnects from its
+ * {@code Last-Event-ID}.
+ * <p>
+ * The change log is also polled with every heartbeat, which picks up changes made through other
+ * instances.
+ */
+@Component
+public class CouponChangeStream {
+
+    static final String CHANGES_EVENT = "changes";
+    static final String BOUNDARY_EVENT = "boundary";
+
+    private static final Logger log = LoggerFactory.getLogger(CouponChangeStream.class);
+    private static final int RETRY_AFTER_SECONDS = 5;
+    private static final Duration RECONNECT_TIME = Duration.ofSeconds(RETRY_AFTER_SECONDS);
+
+    private final CouponService couponService;
+    private final CouponChangeRepository couponChangeRepository;
+    private final CouponCatalog couponCatalog;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor executor;
+    private final TaskExecutor sendExecutor;
+    private final long timeoutMs;
+    private final int maxPendingEvents;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Only accessed from the stream executor's single thread
+    private long broadcastVersion = -1;
+    private CouponCatalogSnapshot lastSnapshot;
+    private final Set<Long> changedSinceBoundaryCheck = new HashSet<>();
+
+    @Autowired
+    public CouponChangeStream(CouponService couponService,
+                              CouponChangeRepository couponChangeRepository,
+                              CouponCatalog couponCatalog,
+                              ObjectMapper objectMapper,
+                              @Qualifier("couponStreamExecutor") TaskExecutor executor,
+                              @Qualifier("couponStreamSendExecutor") TaskExecutor sendExecutor,
+                              @Value("${app.coupons.stream.timeout:PT30M}") Duration timeout,
+                              @Value("${app.coupons.stream.max-pending-events:100}") int maxPendingEvents) {
+        this.couponService = couponService;
+        this.couponChangeRepository = couponChangeRepository;
+        this.couponCatalog = couponCatalog;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.sendExecutor = sendExecutor;
+        this.timeoutMs = timeout.toMillis();
+        this.maxPendingEvents = maxPendingEvents;
+    }
+
+    /**
+     * Opens a stream, first replaying the changes after {@code lastEventId} if given, otherwise
+     * sending an empty {@code changes} event that tells the client its starting version.
+     *
+     * @throws BadRequestException if {@code lastEventId} is negative
+     * @throws TooManyRequestsException if the stream executor cannot take more work
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        if (lastEventId != null && lastEventId < 0) {
+            throw new BadRequestException("Last event id cannot be negative");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::disconnected);
+        emitter.onError(ex -> subscriber.disconnected());
+        emitter.onTimeout(emitter::complete);
+        try {
+            // Sent before the response is handed over, so the headers are written on this thread
+            emitter.send(SseEmitter.event().reconnectTime(RECONNECT_TIME.toMillis()));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not open coupon stream", ex);
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    ensureInitialized();
+                    if (lastEventId == null) {
+                        subscriber.enqueue(changesEvent(new CouponChangeEventDto(List.of(), List.of(), broadcastVersion)));
+                    } else {
+                        replay(subscriber, lastEventId);
+                    }
+                    // Registered only now, so no broadcast can overtake the replay
+                    subscribers.add(subscriber);
+                } catch (RuntimeException ex) {
+                    log.error("Could not replay coupon changes since {}", lastEventId, ex);
+                    subscriber.close();
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            throw new TooManyRequestsException("Coupon stream is busy, please reconnect later", RETRY_AFTER_SECONDS);
+        }
+        return emitter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        submit(this::ensureInitialized);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCouponChanged(CouponCatalogChangedEvent event) {
+        submit(this::publishChanges);
+    }
+
+    @Scheduled(fixedDelayString = "${app.coupons.stream.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        submit(() -> {
+            publishChanges();
+            broadcast(SseEmitter.event().comment("heartbeat").build());
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.coupons.stream.boundary-check-interval-ms:1000}")
+    public void checkBoundaries() {
+        submit(this::publishBoundaries);
+    }
+
+    private void ensureInitialized() {
+        if (broadcastVersion < 0) {
+            broadcastVersion = couponChangeRepository.findLatestSeq();
+        }
+    }
+
+    private void replay(Subscriber subscriber, long since) {
+        CouponChangesDto changes;
+        do {
+            changes = couponService.getChangesSince(since, CouponService.MAX_CHANGES_LIMIT);
+            if (changes.getVersion() != since) {
+                subscriber.enqueue(changesEvent(toEvent(changes)));
+            }
+            since = changes.getVersion();
+        } while (changes.isHasMore());
+    }
+
+    private void publishChanges() {
+        ensureInitialized();
+        CouponChangesDto changes;
+        do {
+            changes = couponService.getChangesSince(broadcastVersion, CouponService.MAX_CHANGES_LIMIT);
+            if (changes.getVersion() == broadcastVersion) {
+                return;
+            }
+            CouponChangeEventDto event = toEvent(changes);
+            changedSinceBoundaryCheck.addAll(event.getUpserted());
+            changedSinceBoundaryCheck.addAll(event.getDeleted());
+            broadcastVersion = changes.getVersion();
+            broadcast(changesEvent(event));
+        } while (changes.isHasMore());
+    }
+
+    /**
+     * Reports coupons that entered or left the catalog because their validity window opened or
+     * closed, leaving out those that did so because they were edited.
+     */
+    private void publishBoundaries() {
+        CouponCatalogSnapshot previous = lastSnapshot;
+        CouponCatalogSnapshot current = couponCatalog.current();
+        lastSnapshot = current;
+        if (previous == null || previous.getVersion() == current.getVersion()) {
+            return;
+        }
+
+        List<Long> activated = new ArrayList<>();
+        for (Coupon coupon : current.getCoupons()) {
+            if (previous.findById(coupon.getId()).isEmpty() && !changedSinceBoundaryCheck.contains(coupon.getId())
+                    && coupon.getValidFrom().getTime() > previous.getBuiltAt()) {
+                activated.add(coupon.getId());
+            }
+        }
+        List<Long> expired = new ArrayList<>();
+        for (Coupon coupon : previous.getCoupons()) {
+            if (current.findById(coupon.getId()).isEmpty() && !changedSinceBoundaryCheck.contains(coupon.getId())
+                    && coupon.getValidTo().getTime() < current.getBuiltAt()) {
+                expired.add(coupon.getId());
+            }
+        }
+        changedSinceBoundaryCheck.clear();
+
+        if (!activated.isEmpty() || !expired.isEmpty()) {
+            broadcast(SseEmitter.event()
+                    .name(BOUNDARY_EVENT)
+                    .data(serialize(new CouponChangeEventDto(activated, expired, broadcastVersion)))
+                    .build());
+        }
+    }
+
+    private void broadcast(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.pendingCount.get() >= maxPendingEvents) {
+                log.debug("Coupon stream subscriber fell {} events behind, closing it", maxPendingEvents);
+                subscriber.close();
+            } else {
+                subscriber.enqueue(event);
+            }
+        }
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> changesEvent(CouponChangeEventDto event) {
+        return SseEmitter.event()
+                .id(Long.toString(event.getVersion()))
+                .name(CHANGES_EVENT)
+                .data(serialize(event))
+                .build();
+    }
+
+    private static CouponChangeEventDto toEvent(CouponChangesDto changes) {
+        return new CouponChangeEventDto(
+                changes.getUpserts().stream().map(CouponDetailDto::getId).toList(),
+                changes.getDeleted(),
+                changes.getVersion());
+    }
+
+    private String serialize(CouponChangeEventDto event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize coupon stream event", ex);
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    log.error("Coupon stream task failed", ex);
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            log.warn("Coupon stream executor is saturated, skipping a scheduled update");
+        }
+    }
+
+    /**
+     * A connection and the events not yet written to it. At most one send task drains the queue at
+     * a time, which keeps the events in order, and the emitter is only touched from that task.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enqueue(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (closed) {
+                return;
+            }
+            pendingCount.incrementAndGet();
+            pending.add(event);
+            scheduleDrain();
+        }
+
+        /**
+         * Stops sending and completes the emitter once a write in progress, if any, returns.
+         */
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            scheduleDrain();
+        }
+
+        /**
+         * Called by the container once the connection is gone; the emitter is already completed.
+         */
+        void disconnected() {
+            closed = true;
+            subscribers.remove(this);
+            pending.clear();
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sendExecutor.execute(this::drain);
+            } catch (TaskRejectedException ex) {
+                // Nothing is being written, so completing here cannot wait on a slow client
+                disconnected();
+                emitter.complete();
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                while (!closed && (event = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    emitter.send(event);
+                }
+                if (closed) {
+                    // Leaves draining set, nothing is sent after completion
+                    pending.clear();
+                    emitter.complete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // The emitter is completed by the container, it only needs to stop receiving events
+                disconnected();
+                return;
+            }
+            draining.set(false);
+            if (!pending.isEmpty() || closed) {
+                scheduleDrain();
+            }
+        }
+    }
+}
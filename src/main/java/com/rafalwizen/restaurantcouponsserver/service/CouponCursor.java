@@ -0,0 +1,66 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.exception.BadRequestException;
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated coupon listing: the sort key and id of the last coupon a client
+ * has seen. Encoded as an opaque URL-safe token that also pins the sort it was issued for.
+ */
+public record CouponCursor(CouponSortField field, Sort.Direction direction, Object key, Long id) {
+
+    private static final String SEPARATOR = ":";
+
+    public static CouponCursor after(Coupon coupon, CouponSortField field, Sort.Direction direction) {
+        return new CouponCursor(field, direction, field.keyOf(coupon), coupon.getId());
+    }
+
+    /**
+     * Decodes a cursor previously issued for the same sort.
+     *
+     * @throws BadRequestException if the token is malformed or was issued for a different sort
+     */
+    public static CouponCursor decode(String token, CouponSortField field, Sort.Direction direction) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The key goes last as it is the only part that may contain the separator
+            String[] parts = decoded.split(SEPARATOR, 4);
+            if (parts.length != 4) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            if (!parts[0].equals(field.getProperty()) || !parts[1].equals(direction.name())) {
+                throw new BadRequestException("Cursor was issued for a different sort order");
+            }
+            return new CouponCursor(field, direction, field.parseKey(parts[3]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = field.getProperty() + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR + field.formatKey(key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Coupon carrying only the sort key and id, for comparisons against in-memory listings.
+     */
+    public Coupon toProbe() {
+        Coupon probe = new Coupon();
+        field.applyKey(probe, key);
+        probe.setId(id);
+        return probe;
+    }
+
+    /**
+     * Sort matching the seek predicate: the key first, then id to break ties.
+     */
+    public static Sort sortFor(CouponSortField field, Sort.Direction direction) {
+        Sort sort = Sort.by(direction, field.getProperty());
+        return field == CouponSortField.ID ? sort : sort.and(Sort.by(direction, CouponSortField.ID.getProperty()));
+    }
+}
@@ -0,0 +1,284 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponImportErrorDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponImportReportDto;
+import com.rafalwizen.restaurantcouponsserver.exception.BadRequestException;
+import com.rafalwizen.restaurantcouponsserver.mapper.CouponMapper;
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponChangeRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk coupon import from a JSON array or CSV.
+ * <p>
+ * The input is read and validated one row at a time. Valid rows are collected into batches whose
+ * image references are checked with one query, then inserted with one multi-row statement together
+ * with their change log entries. Invalid rows are skipped and reported.
+ * <p>
+ * Each batch commits on its own. Change log sequence values are taken at insert, so holding them in
+ * one long transaction would leave a hole that edits committed meanwhile step past once it has
+ * outlived {@link CouponService#CHANGE_SETTLE_MS}, and the imported coupons would never be synced.
+ * If the input turns out not to be parseable, the batches written before that point stay imported.
+ */
+@Service
+public class CouponImportService {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final Set<String> CSV_COLUMNS = Set.of("name", "description", "discountValue", "validFrom",
+            "validTo", "termsAndConditions", "isActive", "imageId");
+
+    private final CouponRepository couponRepository;
+    private final CouponChangeRepository couponChangeRepository;
+    private final ImageRepository imageRepository;
+    private final CouponMapper couponMapper;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate batchTransaction;
+    private final int batchSize;
+
+    @Autowired
+    public CouponImportService(CouponRepository couponRepository,
+                               CouponChangeRepository couponChangeRepository,
+                               ImageRepository imageRepository,
+                               CouponMapper couponMapper,
+                               Validator validator,
+                               ObjectMapper objectMapper,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.coupons.import.batch-size:500}") int batchSize) {
+        this.couponRepository = couponRepository;
+        this.couponChangeRepository = couponChangeRepository;
+        this.imageRepository = imageRepository;
+        this.couponMapper = couponMapper;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports a JSON array of coupons in the format accepted when creating a single coupon.
+     *
+     * @throws BadRequestException if the input is not a well-formed JSON array
+     */
+    public CouponImportReportDto importJson(InputStream in) throws IOException {
+        try (Batch batch = new Batch(); JsonParser parser = objectMapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Expected a JSON array of coupons");
+            }
+            long row = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new BadRequestException("Unexpected end of JSON input");
+                }
+                JsonNode node = parser.readValueAsTree();
+                batch.add(++row, () -> objectMapper.treeToValue(node, CouponCreateDto.class));
+            }
+            return batch.finish();
+        } catch (JsonProcessingException ex) {
+            throw new BadRequestException("Malformed JSON input: " + ex.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Imports CSV whose header row names the coupon fields, using the property names of the JSON
+     * format. Dates are ISO-8601, empty fields are treated as absent.
+     *
+     * @throws BadRequestException if the header is missing or names an unknown column
+     */
+    public CouponImportReportDto importCsv(InputStream in) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        List<String> header = reader.readRecord();
+        if (header == null) {
+            throw new BadRequestException("CSV input has no header row");
+        }
+        header = header.stream().map(String::trim).toList();
+        for (String column : header) {
+            if (!CSV_COLUMNS.contains(column)) {
+                throw new BadRequestException("Unknown CSV column: " + column);
+            }
+        }
+
+        try (Batch batch = new Batch()) {
+            long row = 0;
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                if (record.size() == 1 && record.get(0).isEmpty()) {
+                    continue;
+                }
+                row++;
+                if (record.size() != header.size()) {
+                    batch.reject(row, "Expected " + header.size() + " fields but found " + record.size());
+                    continue;
+                }
+                Map<String, String> values = new LinkedHashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    if (!record.get(i).isEmpty()) {
+                        values.put(header.get(i), record.get(i));
+                    }
+                }
+                batch.add(row, () -> {
+                    try {
+                        return objectMapper.convertValue(values, CouponCreateDto.class);
+                    } catch (IllegalArgumentException ex) {
+                        if (ex.getCause() instanceof JsonMappingException mapping) {
+                            throw mapping;
+                        }
+                        throw ex;
+                    }
+                });
+            }
+            return batch.finish();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+        CouponCreateDto read() throws JsonProcessingException;
+    }
+
+    /**
+     * Collects validated rows and writes them out whenever a batch is full. Closing it announces
+     * whatever was written, including when the import stopped early.
+     */
+    private class Batch implements AutoCloseable {
+
+        private final List<Long> rowNumbers = new ArrayList<>(batchSize);
+        private final List<CouponCreateDto> coupons = new ArrayList<>(batchSize);
+        private final Set<Long> knownImageIds = new HashSet<>();
+        private final List<CouponImportErrorDto> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long failed;
+
+        void add(long row, RowReader reader) {
+            rows++;
+            CouponCreateDto coupon;
+            try {
+                coupon = reader.read();
+            } catch (JsonMappingException ex) {
+                error(row, describe(ex));
+                return;
+            } catch (JsonProcessingException ex) {
+                error(row, ex.getOriginalMessage());
+                return;
+            }
+
+            Set<ConstraintViolation<CouponCreateDto>> violations = validator.validate(coupon);
+            if (!violations.isEmpty()) {
+                error(row, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+
+            rowNumbers.add(row);
+            coupons.add(coupon);
+            if (coupons.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Counts a row that is rejected without being read.
+         */
+        void reject(long row, String message) {
+            rows++;
+            error(row, message);
+        }
+
+        private void error(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new CouponImportErrorDto(row, message));
+            }
+        }
+
+        CouponImportReportDto finish() {
+            flush();
+            // Image references are only checked per batch, so their errors arrive late
+            errors.sort(Comparator.comparingLong(CouponImportErrorDto::getRow));
+            return new CouponImportReportDto(rows, imported, failed, errors);
+        }
+
+        @Override
+        public void close() {
+            // Once per import rather than per batch, each event rebuilds the whole catalog
+            if (imported > 0) {
+                eventPublisher.publishEvent(new CouponCatalogChangedEvent(null));
+            }
+        }
+
+        private void flush() {
+            Set<Long> unknownImageIds = coupons.stream()
+                    .map(CouponCreateDto::getImageId)
+                    .filter(id -> id != null && !knownImageIds.contains(id))
+                    .collect(Collectors.toSet());
+            if (!unknownImageIds.isEmpty()) {
+                knownImageIds.addAll(imageRepository.findExistingIds(unknownImageIds));
+            }
+
+            List<Coupon> valid = new ArrayList<>(coupons.size());
+            for (int i = 0; i < coupons.size(); i++) {
+                CouponCreateDto coupon = coupons.get(i);
+                if (coupon.getImageId() != null && !knownImageIds.contains(coupon.getImageId())) {
+                    error(rowNumbers.get(i), "Image not found with id: " + coupon.getImageId());
+                } else {
+                    valid.add(couponMapper.toEntity(coupon));
+                }
+            }
+            rowNumbers.clear();
+            coupons.clear();
+
+            if (!valid.isEmpty()) {
+                batchTransaction.executeWithoutResult(status ->
+                        couponChangeRepository.appendAll(couponRepository.insertAll(valid)));
+                imported += valid.size();
+            }
+        }
+    }
+
+    private static String describe(JsonMappingException ex) {
+        String field = ex.getPath().stream()
+                .map(JsonMappingException.Reference::getFieldName)
+                .filter(name -> name != null)
+                .collect(Collectors.joining("."));
+        return field.isEmpty() ? ex.getOriginalMessage() : "Invalid value for " + field;
+    }
+}
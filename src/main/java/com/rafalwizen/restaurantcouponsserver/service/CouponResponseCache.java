@@ -0,0 +1,122 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rafalwizen.restaurantcouponsserver.dto.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ready-to-write bodies of the most requested public coupon responses: the first pages of the
+ * default listing and coupon details.
+ * <p>
+ * Entries are keyed by catalog version, so every catalog refresh, including the one that follows
+ * each coupon change, retires them. They are also keyed by image URL origin, because image URLs
+ * embedded in the body may depend on the request when no fixed base URL is configured, and by
+ * the expiry of signed image URLs, so a cached body never hands out URLs that expire sooner than
+ * freshly signed ones. The timestamp in a cached body is the time it was serialized.
+ */
+@Component
+public class CouponResponseCache {
+
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    public static final String DEFAULT_SORT_PROPERTY = "id";
+
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.ASC, DEFAULT_SORT_PROPERTY);
+
+    private record Key(long version, String origin, long urlExpiry, String kind, long value) {
+    }
+
+    private final CouponService couponService;
+    private final CouponCatalog couponCatalog;
+    private final ImageUrlResolver imageUrlResolver;
+    private final ObjectMapper objectMapper;
+    private final int cachedPages;
+    private final Cache<Key, SerializedResponse> responses;
+    private volatile long cachedVersion = -1;
+
+    @Autowired
+    public CouponResponseCache(CouponService couponService,
+                               CouponCatalog couponCatalog,
+                               ImageUrlResolver imageUrlResolver,
+                               ObjectMapper objectMapper,
+                               @Value("${app.coupons.response-cache.pages:5}") int cachedPages,
+                               @Value("${app.coupons.response-cache.max-entries:2000}") long maxEntries) {
+        this.couponService = couponService;
+        this.couponCatalog = couponCatalog;
+        this.imageUrlResolver = imageUrlResolver;
+        this.objectMapper = objectMapper;
+        this.cachedPages = cachedPages;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    public boolean isCachedPage(int page) {
+        return page >= 0 && page < cachedPages;
+    }
+
+    /**
+     * Returns the serialized listing page at default size and sort.
+     *
+     * @throws IllegalArgumentException if the page is not one of the {@link #isCachedPage cached} ones
+     */
+    public SerializedResponse activePage(int page) {
+        if (!isCachedPage(page)) {
+            throw new IllegalArgumentException("Page " + page + " is not cached");
+        }
+        return responses.get(key("page", page), key -> serialize(
+                ApiResponse.success("Active coupons retrieved successfully",
+                        couponService.getAllActiveCoupons(PageRequest.of(page, DEFAULT_PAGE_SIZE, DEFAULT_SORT)))));
+    }
+
+    /**
+     * Returns the serialized detail response of an active coupon.
+     *
+     * @throws com.rafalwizen.restaurantcouponsserver.exception.ResourceNotFoundException
+     *         if the coupon is not active
+     */
+    public SerializedResponse activeCoupon(Long id) {
+        return responses.get(key("coupon", id), key -> serialize(
+                ApiResponse.success("Coupon retrieved successfully", couponService.getCouponById(id))));
+    }
+
+    private Key key(String kind, long value) {
+        long version = couponCatalog.current().getVersion();
+        if (version != cachedVersion) {
+            // Entries of older versions can no longer be hit, drop them instead of waiting for eviction
+            responses.invalidateAll();
+            cachedVersion = version;
+        }
+        return new Key(version, imageUrlResolver.origin(), imageUrlResolver.signatureExpiry(), kind, value);
+    }
+
+    private SerializedResponse serialize(ApiResponse<?> response) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            return new SerializedResponse(body, gzip(body));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize coupon response", ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return buffer.toByteArray();
+    }
+}
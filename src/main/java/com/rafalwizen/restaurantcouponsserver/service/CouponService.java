@@ -1,53 +1,205 @@
 package com.rafalwizen.restaurantcouponsserver.service;
 
+import com.rafalwizen.restaurantcouponsserver.dto.BatchGetDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponBulkFilterDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponBulkOperationDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponBulkResultDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponChangesDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponSummaryDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponUpdateDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CursorSliceDto;
+import com.rafalwizen.restaurantcouponsserver.exception.BadRequestException;
 import com.rafalwizen.restaurantcouponsserver.exception.ResourceNotFoundException;
+import com.rafalwizen.restaurantcouponsserver.mapper.CouponMapper;
 import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.model.CouponChange;
 import com.rafalwizen.restaurantcouponsserver.model.Image;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponChangeRepository;
 import com.rafalwizen.restaurantcouponsserver.repository.CouponRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponRepositoryCustom;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponSelection;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponSummaryView;
 import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CouponService {
 
+    static final int MAX_SLICE_LIMIT = 100;
+    static final int MAX_CHANGES_LIMIT = 1000;
+
+    /**
+     * How long a hole in the change sequence may belong to a transaction that has not committed
+     * yet. Sequence values are taken at insert, not at commit, so a sync must not step over a
+     * recent hole or the change filling it later would never be delivered.
+     */
+    static final long CHANGE_SETTLE_MS = 5000;
+
     private final CouponRepository couponRepository;
+    private final CouponChangeRepository couponChangeRepository;
     private final ImageRepository imageRepository;
+    private final CouponCatalog couponCatalog;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CouponMapper couponMapper;
+    private final ImageUrlResolver imageUrlResolver;
 
     @Autowired
-    public CouponService(CouponRepository couponRepository, ImageRepository imageRepository) {
+    public CouponService(CouponRepository couponRepository,
+                         CouponChangeRepository couponChangeRepository,
+                         ImageRepository imageRepository,
+                         CouponCatalog couponCatalog,
+                         ApplicationEventPublisher eventPublisher,
+                         CouponMapper couponMapper,
+                         ImageUrlResolver imageUrlResolver) {
         this.couponRepository = couponRepository;
+        this.couponChangeRepository = couponChangeRepository;
         this.imageRepository = imageRepository;
+        this.couponCatalog = couponCatalog;
+        this.eventPublisher = eventPublisher;
+        this.couponMapper = couponMapper;
+        this.imageUrlResolver = imageUrlResolver;
     }
 
     public Page<CouponSummaryDto> getAllCoupons(Pageable pageable) {
-        Page<Coupon> coupons = couponRepository.findAll(pageable);
+        Page<CouponSummaryView> coupons = couponRepository.findAllSummaries(pageable);
         return coupons.map(this::convertToSummaryDto);
     }
 
     public Page<CouponSummaryDto> getAllActiveCoupons(Pageable pageable) {
-        Page<Coupon> coupons = couponRepository.findAllActiveCoupons(new Date(), pageable);
-        return coupons.map(this::convertToSummaryDto);
+        return couponCatalog.findActive(pageable)
+                .map(coupons -> coupons.map(this::convertToSummaryDto))
+                // Sorts the catalog cannot order in memory still go to the database
+                .orElseGet(() -> couponRepository.findActiveSummaries(new Date(), pageable)
+                        .map(this::convertToSummaryDto));
+    }
+
+    /**
+     * Keyset-paginated listing of active coupons, served from the catalog snapshot.
+     */
+    public CursorSliceDto<CouponSummaryDto> getActiveCouponsAfter(String after, int limit,
+                                                                  String sortBy, Sort.Direction direction) {
+        CouponSortField field = resolveSliceSort(sortBy, limit);
+        Coupon position = after == null ? null : CouponCursor.decode(after, field, direction).toProbe();
+
+        List<Coupon> coupons = couponCatalog.findActiveAfter(CouponCursor.sortFor(field, direction), position, limit + 1)
+                .orElseThrow(() -> new BadRequestException("Unsupported sort property: " + sortBy));
+        boolean hasNext = coupons.size() > limit;
+        return toSlice(hasNext ? coupons.subList(0, limit) : coupons, limit, hasNext, field, direction);
+    }
+
+    /**
+     * Keyset-paginated listing of all coupons using a seek predicate on the sort key and id,
+     * so neither a count query nor an offset scan is needed.
+     */
+    public CursorSliceDto<CouponSummaryDto> getAllCouponsAfter(String after, int limit,
+                                                               String sortBy, Sort.Direction direction) {
+        CouponSortField field = resolveSliceSort(sortBy, limit);
+        CouponCursor cursor = after == null ? null : CouponCursor.decode(after, field, direction);
+
+        List<CouponRepositoryCustom.SeekRow> rows = couponRepository.findSummariesAfter(field.getProperty(), direction,
+                cursor == null ? null : cursor.key(), cursor == null ? null : cursor.id(), limit + 1);
+        boolean hasNext = rows.size() > limit;
+        List<CouponRepositoryCustom.SeekRow> content = hasNext ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            CouponRepositoryCustom.SeekRow last = content.get(content.size() - 1);
+            nextCursor = new CouponCursor(field, direction, last.sortKey(), last.summary().id()).encode();
+        }
+        return new CursorSliceDto<>(
+                content.stream().map(row -> convertToSummaryDto(row.summary())).toList(),
+                limit, hasNext, nextCursor);
+    }
+
+    /**
+     * Coupons changed after the given change log version. Each changed coupon is reported once in
+     * its current state: as an upsert while it exists and is active, otherwise as deleted. Upserts
+     * include coupons outside their validity window, which clients filter by the dates they carry.
+     */
+    public CouponChangesDto getChangesSince(long since, int limit) {
+        if (since < 0) {
+            throw new BadRequestException("Version cannot be negative");
+        }
+        if (limit < 1 || limit > MAX_CHANGES_LIMIT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_CHANGES_LIMIT);
+        }
+
+        List<CouponChange> changes = couponChangeRepository.findBySeqGreaterThanOrderBySeqAsc(
+                since, PageRequest.of(0, limit + 1));
+        long settledBefore = System.currentTimeMillis() - CHANGE_SETTLE_MS;
+
+        long version = since;
+        int consumed = 0;
+        boolean hasMore = false;
+        Set<Long> changedIds = new LinkedHashSet<>();
+        for (CouponChange change : changes) {
+            if (change.getSeq() != version + 1 && change.getChangedAt().getTime() > settledBefore) {
+                // Stop short of the hole, the next sync resumes from here once it has settled
+                break;
+            }
+            if (consumed == limit) {
+                hasMore = true;
+                break;
+            }
+            changedIds.add(change.getCouponId());
+            version = change.getSeq();
+            consumed++;
+        }
+
+        Map<Long, Coupon> coupons = couponRepository.findAllById(changedIds).stream()
+                .collect(Collectors.toMap(Coupon::getId, Function.identity()));
+        List<CouponDetailDto> upserts = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (Long id : changedIds) {
+            Coupon coupon = coupons.get(id);
+            if (coupon != null && Boolean.TRUE.equals(coupon.getIsActive())) {
+                upserts.add(convertToDetailDto(coupon));
+            } else {
+                deleted.add(id);
+            }
+        }
+        return new CouponChangesDto(upserts, deleted, version, hasMore);
     }
 
     public CouponDetailDto getCouponById(Long id) {
-        Coupon coupon = couponRepository.findActiveById(id, new Date());
-        if (coupon == null) {
-            throw new ResourceNotFoundException("Coupon not found with id: " + id);
+        return couponCatalog.findActiveById(id)
+                .map(this::convertToDetailDto)
+                .orElseThrow(() -> new ResourceNotFoundException("Coupon not found with id: " + id));
+    }
+
+    /**
+     * Active coupons with the given ids, looked up in the catalog snapshot without a query.
+     * Duplicate ids are returned once, at their first position.
+     */
+    public BatchGetDto<CouponDetailDto> getCouponsByIds(List<Long> ids) {
+        List<CouponDetailDto> content = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : BatchIds.distinct(ids)) {
+            couponCatalog.findActiveById(id).ifPresentOrElse(
+                    coupon -> content.add(convertToDetailDto(coupon)),
+                    () -> missing.add(id));
         }
-        return convertToDetailDto(coupon);
+        return new BatchGetDto<>(content, missing);
     }
 
     public CouponDetailDto getAdminCouponById(Long id) {
@@ -58,8 +210,7 @@ public class CouponService {
 
     @Transactional
     public CouponDetailDto createCoupon(CouponCreateDto couponDto) {
-        Coupon coupon = new Coupon();
-        BeanUtils.copyProperties(couponDto, coupon);
+        Coupon coupon = couponMapper.toEntity(couponDto);
 
         // Verify image exists if provided
         if (couponDto.getImageId() != null) {
@@ -67,6 +218,8 @@ public class CouponService {
         }
 
         Coupon savedCoupon = couponRepository.save(coupon);
+        couponChangeRepository.save(new CouponChange(savedCoupon.getId()));
+        eventPublisher.publishEvent(new CouponCatalogChangedEvent(savedCoupon.getId()));
         return convertToDetailDto(savedCoupon);
     }
 
@@ -105,6 +258,8 @@ public class CouponService {
         }
 
         Coupon updatedCoupon = couponRepository.save(existingCoupon);
+        couponChangeRepository.save(new CouponChange(id));
+        eventPublisher.publishEvent(new CouponCatalogChangedEvent(id));
         return convertToDetailDto(updatedCoupon);
     }
 
@@ -114,39 +269,100 @@ public class CouponService {
             throw new ResourceNotFoundException("Coupon not found with id: " + id);
         }
         couponRepository.deleteById(id);
+        couponChangeRepository.save(new CouponChange(id));
+        eventPublisher.publishEvent(new CouponCatalogChangedEvent(id));
+    }
+
+    /**
+     * Applies an action to all coupons selected by id or by filter with a single statement.
+     */
+    @Transactional
+    public CouponBulkResultDto applyBulkOperation(CouponBulkOperationDto operation) {
+        CouponSelection selection = toSelection(operation);
+        int affected = switch (operation.getAction()) {
+            case ACTIVATE -> couponRepository.setActive(selection, true);
+            case DEACTIVATE -> couponRepository.setActive(selection, false);
+            case EXTEND -> {
+                if (operation.getValidTo() == null) {
+                    throw new BadRequestException("New valid to date is required to extend coupons");
+                }
+                yield couponRepository.extendValidTo(selection, operation.getValidTo());
+            }
+            case DELETE -> couponRepository.deleteAll(selection);
+        };
+        if (affected > 0) {
+            eventPublisher.publishEvent(new CouponCatalogChangedEvent(null));
+        }
+        return new CouponBulkResultDto(operation.getAction(), affected);
+    }
+
+    private static CouponSelection toSelection(CouponBulkOperationDto operation) {
+        CouponBulkFilterDto filter = operation.getFilter();
+        if ((operation.getIds() == null) == (filter == null)) {
+            throw new BadRequestException("Exactly one of ids or filter must be given");
+        }
+        if (operation.getIds() != null) {
+            if (operation.getIds().isEmpty()) {
+                throw new BadRequestException("Ids cannot be empty");
+            }
+            return CouponSelection.ofIds(operation.getIds());
+        }
+        CouponSelection selection = new CouponSelection(null, filter.getValidFrom(), filter.getValidTo(),
+                StringUtils.hasLength(filter.getNamePrefix()) ? filter.getNamePrefix() : null, filter.getImageId());
+        // An empty filter would match every coupon, which is never what a bulk operation means
+        if (selection.isEmpty()) {
+            throw new BadRequestException("Filter must contain at least one condition");
+        }
+        return selection;
+    }
+
+    private CouponSortField resolveSliceSort(String sortBy, int limit) {
+        if (limit < 1 || limit > MAX_SLICE_LIMIT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_SLICE_LIMIT);
+        }
+        return CouponSortField.fromProperty(sortBy)
+                .orElseThrow(() -> new BadRequestException("Unsupported sort property: " + sortBy));
+    }
+
+    private CursorSliceDto<CouponSummaryDto> toSlice(List<Coupon> coupons, int limit, boolean hasNext,
+                                                     CouponSortField field, Sort.Direction direction) {
+        List<CouponSummaryDto> content = coupons.stream()
+                .map(this::convertToSummaryDto)
+                .toList();
+        String nextCursor = hasNext
+                ? CouponCursor.after(coupons.get(coupons.size() - 1), field, direction).encode()
+                : null;
+        return new CursorSliceDto<>(content, limit, hasNext, nextCursor);
+    }
+
+    private CouponSummaryDto convertToSummaryDto(CouponSummaryView view) {
+        CouponSummaryDto dto = couponMapper.toSummaryDto(view);
+        if (view.imageId() != null) {
+            dto.setImageUrl(imageUrlResolver.contentUrl(view.imageId()));
+        }
+        return dto;
     }
 
     private CouponSummaryDto convertToSummaryDto(Coupon coupon) {
-        CouponSummaryDto dto = new CouponSummaryDto();
-        dto.setId(coupon.getId());
-        dto.setName(coupon.getName());
-        dto.setDiscountValue(coupon.getDiscountValue());
-        dto.setImageId(coupon.getImageId());
-        dto.setImageUrl(buildImageUrl(coupon.getImageId()));
+        CouponSummaryDto dto = couponMapper.toSummaryDto(coupon);
+        if (coupon.getImageId() != null) {
+            dto.setImageUrl(imageUrlResolver.contentUrl(coupon.getImageId()));
+        }
         return dto;
     }
 
     private CouponDetailDto convertToDetailDto(Coupon coupon) {
-        CouponDetailDto dto = new CouponDetailDto();
-        BeanUtils.copyProperties(coupon, dto);
+        CouponDetailDto dto = couponMapper.toDetailDto(coupon);
 
         // Add image URL if associated with an image
         if (coupon.getImageId() != null) {
-            String imageUrl = buildImageUrl(coupon.getImageId());
+            String imageUrl = imageUrlResolver.contentUrl(coupon.getImageId());
             dto.setImageUrl(imageUrl);
         }
 
         return dto;
     }
 
-    private String buildImageUrl(Long imageId) {
-        return ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path("/api/images/")
-                .path(imageId.toString())
-                .path("/content")
-                .toUriString();
-    }
-
     private void validateImageExists(Long imageId) {
         if (imageId != null && !imageRepository.existsById(imageId)) {
             throw new ResourceNotFoundException("Image not found with id: " + imageId);
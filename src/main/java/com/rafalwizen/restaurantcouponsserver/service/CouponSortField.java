@@ -0,0 +1,97 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Coupon properties that can be sorted in memory and used as keyset pagination keys, mirroring
+ * the property names accepted by the {@code sortBy} request parameter.
+ */
+public enum CouponSortField {
+    ID("id", Long.class, Coupon::getId, (coupon, key) -> coupon.setId((Long) key)),
+    NAME("name", String.class, Coupon::getName, (coupon, key) -> coupon.setName((String) key)),
+    DISCOUNT_VALUE("discountValue", BigDecimal.class, Coupon::getDiscountValue,
+            (coupon, key) -> coupon.setDiscountValue((BigDecimal) key)),
+    VALID_FROM("validFrom", Date.class, Coupon::getValidFrom, (coupon, key) -> coupon.setValidFrom((Date) key)),
+    VALID_TO("validTo", Date.class, Coupon::getValidTo, (coupon, key) -> coupon.setValidTo((Date) key)),
+    CREATED_AT("createdAt", Date.class, Coupon::getCreatedAt, (coupon, key) -> coupon.setCreatedAt((Date) key)),
+    UPDATED_AT("updatedAt", Date.class, Coupon::getUpdatedAt, (coupon, key) -> coupon.setUpdatedAt((Date) key));
+
+    private final String property;
+    private final Class<?> keyType;
+    private final Function<Coupon, ?> extractor;
+    private final BiConsumer<Coupon, Object> setter;
+
+    CouponSortField(String property, Class<?> keyType, Function<Coupon, ?> extractor,
+                    BiConsumer<Coupon, Object> setter) {
+        this.property = property;
+        this.keyType = keyType;
+        this.extractor = extractor;
+        this.setter = setter;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Object keyOf(Coupon coupon) {
+        return extractor.apply(coupon);
+    }
+
+    void applyKey(Coupon coupon, Object key) {
+        setter.accept(coupon, key);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparator<Coupon> comparator() {
+        return Comparator.comparing((Function) extractor, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Formats a key of this field so that {@link #parseKey(String)} restores an equal value.
+     */
+    String formatKey(Object key) {
+        if (key == null) {
+            return "";
+        }
+        if (key instanceof Date date) {
+            // Instant keeps the nanoseconds of JDBC timestamps, millis alone would repeat rows
+            return date.toInstant().toString();
+        }
+        if (key instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return key.toString();
+    }
+
+    Object parseKey(String value) {
+        if (value.isEmpty() && keyType != String.class) {
+            return null;
+        }
+        if (keyType == Long.class) {
+            return Long.valueOf(value);
+        }
+        if (keyType == BigDecimal.class) {
+            return new BigDecimal(value);
+        }
+        if (keyType == Date.class) {
+            return Timestamp.from(Instant.parse(value));
+        }
+        return value;
+    }
+
+    public static Optional<CouponSortField> fromProperty(String property) {
+        return Arrays.stream(values())
+                .filter(field -> field.property.equals(property))
+                .findFirst();
+    }
+}
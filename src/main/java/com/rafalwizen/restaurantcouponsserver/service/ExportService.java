@@ -0,0 +1,135 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
+import com.rafalwizen.restaurantcouponsserver.dto.ImageResponseDto;
+import com.rafalwizen.restaurantcouponsserver.mapper.CouponMapper;
+import com.rafalwizen.restaurantcouponsserver.mapper.ImageMapper;
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes every coupon or image as newline-delimited JSON, one object per line.
+ * <p>
+ * Rows are read through a forward-only stream in a read-only transaction and the persistence
+ * context is cleared every {@value #CLEAR_INTERVAL} rows, so memory use does not grow with the
+ * number of rows.
+ */
+@Service
+public class ExportService {
+
+    static final int CLEAR_INTERVAL = 500;
+
+    private final CouponRepository couponRepository;
+    private final ImageRepository imageRepository;
+    private final CouponMapper couponMapper;
+    private final ImageMapper imageMapper;
+    private final ImageUrlResolver imageUrlResolver;
+    private final ObjectWriter lineWriter;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public ExportService(CouponRepository couponRepository,
+                         ImageRepository imageRepository,
+                         CouponMapper couponMapper,
+                         ImageMapper imageMapper,
+                         ImageUrlResolver imageUrlResolver,
+                         ObjectMapper objectMapper,
+                         EntityManager entityManager,
+                         PlatformTransactionManager transactionManager) {
+        this.couponRepository = couponRepository;
+        this.imageRepository = imageRepository;
+        this.couponMapper = couponMapper;
+        this.imageMapper = imageMapper;
+        this.imageUrlResolver = imageUrlResolver;
+        // Lines are separated explicitly and flushed in batches rather than after every value
+        this.lineWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes all coupons, building image URLs against {@code origin}.
+     *
+     * @return the number of coupons written
+     */
+    public long exportCoupons(OutputStream out, String origin) throws IOException {
+        return export(out, couponRepository::streamAll, coupon -> toDetailDto(coupon, origin));
+    }
+
+    /**
+     * Writes all images, building their URLs against {@code origin}.
+     *
+     * @return the number of images written
+     */
+    public long exportImages(OutputStream out, String origin) throws IOException {
+        return export(out, imageRepository::streamAll, image -> toResponseDto(image, origin));
+    }
+
+    private <T> long export(OutputStream out, Supplier<Stream<T>> rows, Function<T, Object> converter)
+            throws IOException {
+        try {
+            Long written = readOnlyTransaction.execute(status -> {
+                try (Stream<T> stream = rows.get();
+                     JsonGenerator generator = lineWriter.createGenerator(out)) {
+                    // The caller owns the output stream
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    long count = 0;
+                    Iterator<T> iterator = stream.iterator();
+                    while (iterator.hasNext()) {
+                        lineWriter.writeValue(generator, converter.apply(iterator.next()));
+                        generator.writeRaw('\n');
+                        if (++count % CLEAR_INTERVAL == 0) {
+                            // Rows already written are detached so they can be collected
+                            entityManager.clear();
+                            generator.flush();
+                        }
+                    }
+                    generator.flush();
+                    return count;
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            return written != null ? written : 0;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private CouponDetailDto toDetailDto(Coupon coupon, String origin) {
+        CouponDetailDto dto = couponMapper.toDetailDto(coupon);
+        if (coupon.getImageId() != null) {
+            dto.setImageUrl(imageUrlResolver.contentUrl(origin, coupon.getImageId()));
+        }
+        return dto;
+    }
+
+    private ImageResponseDto toResponseDto(Image image, String origin) {
+        ImageResponseDto dto = imageMapper.toResponseDto(image);
+        dto.setUrl(imageUrlResolver.contentUrl(origin, image.getId()));
+        return dto;
+    }
+}
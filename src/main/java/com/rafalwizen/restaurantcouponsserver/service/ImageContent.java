@@ -0,0 +1,15 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+/**
+ * Everything needed to answer a request for image bytes, resolved from the image metadata alone
+ * so conditional requests can be answered without touching the file.
+ *
+ * @param storedPath   storage key of the bytes to serve
+ * @param fileName     original file name, or null when served by signed URL
+ * @param lastModified epoch millis, or -1 when unknown
+ * @param provisional  the original stands in for a variant that has not been generated yet, so
+ *                     the response must not be cached for long under the variant's URL
+ */
+public record ImageContent(String storedPath, String fileName, String contentType, long lastModified, String etag,
+						   boolean provisional) {
+}
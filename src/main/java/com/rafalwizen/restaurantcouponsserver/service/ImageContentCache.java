@@ -0,0 +1,185 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.rafalwizen.restaurantcouponsserver.dto.CacheStatsDto;
+import com.rafalwizen.restaurantcouponsserver.dto.ImageCacheStatsDto;
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import com.rafalwizen.restaurantcouponsserver.model.ImageVariant;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageVariantRepository;
+import com.rafalwizen.restaurantcouponsserver.storage.StoredImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-memory copies of what the image content endpoint needs: the metadata row and variants of an
+ * image, so requests and signed URLs skip the database, also for missing images, and the bytes of
+ * small files, so the most requested images are served without touching storage.
+ * <p>
+ * File bodies share a memory budget and are weighted by their size; Caffeine's W-TinyLFU policy
+ * keeps the frequently requested ones when the budget is exceeded. Files larger than the entry
+ * limit are never cached and keep being sent from storage. A budget of zero disables body caching.
+ * <p>
+ * Bodies are keyed by stored path. Stored paths are derived from content, so a cached body never
+ * goes stale; entries are still dropped on deletion to free the memory.
+ */
+@Component
+public class ImageContentCache {
+
+	/**
+	 * Metadata and variants of an image. The entities are detached and must be treated as read-only.
+	 */
+	public record CachedImage(Image image, List<ImageVariant> variants) {
+	}
+
+	// Stands in for an image that does not exist, so signing URLs of deleted images skips the database
+	private static final CachedImage MISSING = new CachedImage(null, List.of());
+
+	private final ImageRepository imageRepository;
+	private final ImageVariantRepository imageVariantRepository;
+	private final Cache<Long, CachedImage> metadata;
+	private final Cache<String, byte[]> bodies;
+	private final long maxBytes;
+	private final long maxEntrySize;
+
+	@Autowired
+	public ImageContentCache(ImageRepository imageRepository,
+							 ImageVariantRepository imageVariantRepository,
+							 @Value("${app.images.cache.max-bytes:32MB}") DataSize maxBytes,
+							 @Value("${app.images.cache.max-entry-size:256KB}") DataSize maxEntrySize,
+							 @Value("${app.images.cache.metadata-max-size:10000}") long metadataMaxSize,
+							 @Value("${app.images.cache.missing-ttl:PT1M}") Duration missingTtl) {
+		this.imageRepository = imageRepository;
+		this.imageVariantRepository = imageVariantRepository;
+		this.maxBytes = maxBytes.toBytes();
+		this.maxEntrySize = Math.min(maxEntrySize.toBytes(), this.maxBytes);
+		this.metadata = Caffeine.newBuilder()
+				.maximumSize(metadataMaxSize)
+				.expireAfter(missingExpiry(missingTtl.toNanos()))
+				.recordStats()
+				.build();
+		this.bodies = Caffeine.newBuilder()
+				.maximumWeight(this.maxBytes)
+				.<String, byte[]>weigher((storedPath, body) -> body.length)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Returns the cached metadata of an image, loading it on a miss, or null if there is no such
+	 * image. Missing images are remembered for {@code app.images.cache.missing-ttl}, or until an
+	 * image is stored under the id on this instance.
+	 */
+	public CachedImage metadata(Long imageId) {
+		CachedImage cached = metadata.get(imageId, this::load);
+		return cached != MISSING ? cached : null;
+	}
+
+	/**
+	 * Returns the cached body stored under a path, or null if it is not cached.
+	 */
+	public byte[] cachedBody(String storedPath) {
+		return bodies.getIfPresent(storedPath);
+	}
+
+	/**
+	 * Returns the body of an opened stored image, reading and caching it on a miss, or null if
+	 * it is too large to be cached.
+	 */
+	public byte[] body(String storedPath, StoredImage stored) throws IOException {
+		if (stored.length() > maxEntrySize) {
+			return null;
+		}
+		try {
+			return bodies.get(storedPath, key -> {
+				try {
+					return stored.readAllBytes();
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	/**
+	 * Drops the metadata of an image, for instance after its variants changed.
+	 */
+	public void invalidate(Long imageId) {
+		metadata.invalidate(imageId);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onImageStored(ImageStoredEvent event) {
+		metadata.invalidate(event.imageId());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onImageDeleted(ImageDeletedEvent event) {
+		metadata.invalidate(event.imageId());
+		bodies.invalidateAll(event.storedPaths());
+	}
+
+	public ImageCacheStatsDto stats() {
+		return new ImageCacheStatsDto(toDto(metadata), toDto(bodies));
+	}
+
+	private CachedImage load(Long imageId) {
+		return imageRepository.findById(imageId)
+				.map(image -> new CachedImage(image,
+						List.copyOf(imageVariantRepository.findByImageIdOrderByWidthAsc(imageId))))
+				.orElse(MISSING);
+	}
+
+	/**
+	 * Expires misses after {@code missingNanos}, existing images only by size.
+	 */
+	private static Expiry<Long, CachedImage> missingExpiry(long missingNanos) {
+		return new Expiry<>() {
+			@Override
+			public long expireAfterCreate(Long imageId, CachedImage cached, long currentTime) {
+				return cached == MISSING ? missingNanos : Long.MAX_VALUE;
+			}
+
+			@Override
+			public long expireAfterUpdate(Long imageId, CachedImage cached, long currentTime, long currentDuration) {
+				return expireAfterCreate(imageId, cached, currentTime);
+			}
+
+			@Override
+			public long expireAfterRead(Long imageId, CachedImage cached, long currentTime, long currentDuration) {
+				return currentDuration;
+			}
+		};
+	}
+
+	private static CacheStatsDto toDto(Cache<?, ?> cache) {
+		// Pending writes would otherwise be missing from the size and weight
+		cache.cleanUp();
+		CacheStats stats = cache.stats();
+		long size = cache.estimatedSize();
+		long weight = size;
+		long maxWeight = -1;
+		Optional<? extends Policy.Eviction<?, ?>> eviction = cache.policy().eviction();
+		if (eviction.isPresent()) {
+			weight = eviction.get().weightedSize().orElse(size);
+			maxWeight = eviction.get().getMaximum();
+		}
+		return new CacheStatsDto(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(),
+				size, weight, maxWeight);
+	}
+}
@@ -0,0 +1,13 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import java.util.List;
+
+/**
+ * Published when an image and its variants have been deleted, so their files and cached copies
+ * can be dropped once the deletion has committed.
+ *
+ * @param contentHash the content hash of the deleted image, or {@code null} for images stored before hashing
+ * @param storedPaths the storage keys of the deleted original and variants
+ */
+public record ImageDeletedEvent(Long imageId, String contentHash, List<String> storedPaths) {
+}
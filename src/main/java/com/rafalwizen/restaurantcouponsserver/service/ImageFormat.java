@@ -0,0 +1,61 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Image formats accepted for upload, recognized by their leading magic bytes.
+ */
+enum ImageFormat {
+
+	JPEG(MediaType.IMAGE_JPEG_VALUE),
+	PNG(MediaType.IMAGE_PNG_VALUE),
+	GIF(MediaType.IMAGE_GIF_VALUE),
+	WEBP("image/webp");
+
+	/**
+	 * Number of leading bytes needed to tell every format apart.
+	 */
+	static final int SIGNATURE_LENGTH = 12;
+
+	private final String mediaType;
+
+	ImageFormat(String mediaType) {
+		this.mediaType = mediaType;
+	}
+
+	String mediaType() {
+		return mediaType;
+	}
+
+	/**
+	 * Identifies the format from the first {@code length} bytes of a file, or returns null if
+	 * they match none of the signatures.
+	 */
+	static ImageFormat detect(byte[] head, int length) {
+		if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+			return JPEG;
+		}
+		if (startsWith(head, length, 0, new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'})) {
+			return PNG;
+		}
+		if (startsWith(head, length, 0, "GIF87a".getBytes()) || startsWith(head, length, 0, "GIF89a".getBytes())) {
+			return GIF;
+		}
+		if (startsWith(head, length, 0, "RIFF".getBytes()) && startsWith(head, length, 8, "WEBP".getBytes())) {
+			return WEBP;
+		}
+		return null;
+	}
+
+	static boolean startsWith(byte[] data, int length, int offset, byte[] signature) {
+		if (length < offset + signature.length) {
+			return false;
+		}
+		for (int i = 0; i < signature.length; i++) {
+			if (data[offset + i] != signature[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,244 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the format and pixel dimensions of an image from its header while the file streams past,
+ * without decoding it or holding more than a few dozen bytes.
+ * <p>
+ * PNG, GIF and WebP store their dimensions at fixed offsets near the start of the file. JPEG
+ * stores them in its start-of-frame segment, which may follow metadata segments of any size, so
+ * segments are walked one at a time and their payloads skipped.
+ */
+final class ImageHeaderParser {
+
+	private static final int HEAD_LENGTH = 30;
+
+	// JPEG segment walk states
+	private static final int MARKER_PREFIX = 0;
+	private static final int MARKER = 1;
+	private static final int LENGTH_HIGH = 2;
+	private static final int LENGTH_LOW = 3;
+	private static final int SKIP = 4;
+	private static final int FRAME = 5;
+
+	private final byte[] head = new byte[HEAD_LENGTH];
+	private long offset;
+	private ImageFormat format;
+	private boolean invalid;
+	private int width = -1;
+	private int height = -1;
+
+	private int jpegState = MARKER_PREFIX;
+	private int jpegMarker;
+	private int jpegLength;
+	private long jpegRemaining;
+	private final byte[] frame = new byte[5];
+	private int frameLength;
+
+	/**
+	 * Consumes the remaining bytes of {@code buffer} without moving its position.
+	 */
+	void update(ByteBuffer buffer) {
+		for (int i = buffer.position(); i < buffer.limit() && !isComplete(); ) {
+			if (offset < HEAD_LENGTH) {
+				byte value = buffer.get(i++);
+				boolean jpeg = format == ImageFormat.JPEG;
+				head[(int) offset] = value;
+				advance();
+				if (jpeg) {
+					jpeg(value);
+				}
+				continue;
+			}
+			if (format != ImageFormat.JPEG) {
+				return;
+			}
+			if (jpegState == SKIP) {
+				// Metadata payloads are skipped in bulk rather than byte by byte
+				int skipped = (int) Math.min(jpegRemaining, buffer.limit() - i);
+				jpegRemaining -= skipped;
+				offset += skipped;
+				i += skipped;
+				if (jpegRemaining == 0) {
+					jpegState = MARKER_PREFIX;
+				}
+				continue;
+			}
+			offset++;
+			jpeg(buffer.get(i));
+			i++;
+		}
+	}
+
+	private void advance() {
+		offset++;
+		if (format == null && offset == ImageFormat.SIGNATURE_LENGTH) {
+			format = ImageFormat.detect(head, (int) offset);
+			invalid = format == null;
+			if (format == ImageFormat.JPEG) {
+				// The signature bytes after SOI were stored before the format was known
+				for (int i = 2; i < ImageFormat.SIGNATURE_LENGTH && !isComplete(); i++) {
+					jpeg(head[i]);
+				}
+			}
+		}
+		if (offset == HEAD_LENGTH && format != null && format != ImageFormat.JPEG) {
+			readFixedHeader();
+		}
+	}
+
+	/**
+	 * Marks the end of input. Files too short to carry a full header are invalid.
+	 */
+	void finish() {
+		if (format == null && !invalid) {
+			format = ImageFormat.detect(head, (int) offset);
+		}
+		if (format != null && format != ImageFormat.JPEG && width <= 0 && offset < HEAD_LENGTH) {
+			readFixedHeader();
+		}
+		if (format == null || width <= 0) {
+			invalid = true;
+		}
+	}
+
+	/**
+	 * True once the dimensions are known or the input is known not to be a supported image.
+	 */
+	boolean isComplete() {
+		return invalid || width > 0;
+	}
+
+	boolean isInvalid() {
+		return invalid;
+	}
+
+	ImageFormat format() {
+		return format;
+	}
+
+	int width() {
+		return width;
+	}
+
+	int height() {
+		return height;
+	}
+
+	private void readFixedHeader() {
+		switch (format) {
+			case PNG -> {
+				if (ImageFormat.startsWith(head, (int) offset, 12, "IHDR".getBytes())) {
+					setDimensions(int32(16), int32(20));
+				}
+			}
+			case GIF -> setDimensions(uint16le(6), uint16le(8));
+			case WEBP -> readWebpHeader();
+			default -> {
+			}
+		}
+		if (width <= 0) {
+			invalid = true;
+		}
+	}
+
+	private void readWebpHeader() {
+		if (ImageFormat.startsWith(head, (int) offset, 12, "VP8 ".getBytes())) {
+			// Lossy: 14-bit dimensions after the key frame start code
+			setDimensions(uint16le(26) & 0x3FFF, uint16le(28) & 0x3FFF);
+		} else if (ImageFormat.startsWith(head, (int) offset, 12, "VP8L".getBytes())) {
+			// Lossless: 14-bit dimensions minus one, packed after the signature byte
+			int bits = (head[21] & 0xFF) | (head[22] & 0xFF) << 8 | (head[23] & 0xFF) << 16 | (head[24] & 0xFF) << 24;
+			setDimensions((bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1);
+		} else if (ImageFormat.startsWith(head, (int) offset, 12, "VP8X".getBytes())) {
+			// Extended: 24-bit canvas dimensions minus one
+			setDimensions(uint24le(24) + 1, uint24le(27) + 1);
+		}
+	}
+
+	private void jpeg(byte value) {
+		int b = value & 0xFF;
+		switch (jpegState) {
+			case MARKER_PREFIX -> {
+				if (b != 0xFF) {
+					invalid = true;
+				}
+				jpegState = MARKER;
+			}
+			case MARKER -> {
+				if (b == 0xFF) {
+					// Fill byte before the marker code
+					return;
+				}
+				if (b == 0xD9 || b == 0xDA) {
+					// End of image or start of scan before any frame header
+					invalid = true;
+				} else if (b == 0x01 || (b >= 0xD0 && b <= 0xD8)) {
+					jpegState = MARKER_PREFIX;
+				} else {
+					jpegMarker = b;
+					jpegState = LENGTH_HIGH;
+				}
+			}
+			case LENGTH_HIGH -> {
+				jpegLength = b << 8;
+				jpegState = LENGTH_LOW;
+			}
+			case LENGTH_LOW -> {
+				jpegLength |= b;
+				if (jpegLength < 2) {
+					invalid = true;
+				} else if (isFrameMarker(jpegMarker)) {
+					frameLength = 0;
+					jpegState = FRAME;
+				} else {
+					jpegRemaining = jpegLength - 2;
+					jpegState = jpegRemaining > 0 ? SKIP : MARKER_PREFIX;
+				}
+			}
+			case SKIP -> {
+				if (--jpegRemaining == 0) {
+					jpegState = MARKER_PREFIX;
+				}
+			}
+			case FRAME -> {
+				frame[frameLength++] = value;
+				if (frameLength == frame.length) {
+					// Precision, then height and width as big-endian 16-bit values
+					setDimensions((frame[3] & 0xFF) << 8 | (frame[4] & 0xFF), (frame[1] & 0xFF) << 8 | (frame[2] & 0xFF));
+					if (width <= 0) {
+						invalid = true;
+					}
+				}
+			}
+			default -> throw new IllegalStateException("Unknown JPEG parser state " + jpegState);
+		}
+	}
+
+	/**
+	 * Start-of-frame markers SOF0 to SOF15, except DHT (C4), JPG (C8) and DAC (CC).
+	 */
+	private static boolean isFrameMarker(int marker) {
+		return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+	}
+
+	private void setDimensions(int width, int height) {
+		if (width > 0 && height > 0) {
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	private int int32(int at) {
+		return (head[at] & 0xFF) << 24 | (head[at + 1] & 0xFF) << 16 | (head[at + 2] & 0xFF) << 8 | (head[at + 3] & 0xFF);
+	}
+
+	private int uint16le(int at) {
+		return (head[at] & 0xFF) | (head[at + 1] & 0xFF) << 8;
+	}
+
+	private int uint24le(int at) {
+		return (head[at] & 0xFF) | (head[at + 1] & 0xFF) << 8 | (head[at + 2] & 0xFF) << 16;
+	}
+}
@@ -1,48 +1,106 @@
 package com.rafalwizen.restaurantcouponsserver.service;
 
+import com.rafalwizen.restaurantcouponsserver.dto.BatchGetDto;
 import com.rafalwizen.restaurantcouponsserver.dto.ImageDto;
 import com.rafalwizen.restaurantcouponsserver.dto.ImageResponseDto;
 import com.rafalwizen.restaurantcouponsserver.exception.BadRequestException;
 import com.rafalwizen.restaurantcouponsserver.exception.ResourceNotFoundException;
+import com.rafalwizen.restaurantcouponsserver.mapper.ImageMapper;
 import com.rafalwizen.restaurantcouponsserver.model.Image;
+import com.rafalwizen.restaurantcouponsserver.model.ImageVariant;
 import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
-import org.springframework.beans.BeanUtils;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageVariantRepository;
+import com.rafalwizen.restaurantcouponsserver.storage.ImageStorage;
+import com.rafalwizen.restaurantcouponsserver.storage.StoredImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ImageService {
 
+	private static final Logger log = LoggerFactory.getLogger(ImageService.class);
+	private static final int UPLOAD_BUFFER_SIZE = 64 * 1024;
+	private static final int CONTENT_LOCK_STRIPES = 64;
+
 	private final ImageRepository imageRepository;
-	private final Path fileStorageLocation;
+	private final ImageVariantRepository imageVariantRepository;
+	private final ApplicationEventPublisher eventPublisher;
+	private final ImageMapper imageMapper;
+	private final ImageUrlResolver imageUrlResolver;
+	private final ImageContentCache imageContentCache;
+	private final ImageStorage imageStorage;
+	private final Path tempLocation;
+	private final long maxUploadSize;
+	private final int maxDimension;
+	private final long maxPixels;
+	private final Object[] contentLocks = new Object[CONTENT_LOCK_STRIPES];
 
 	@Autowired
 	public ImageService(ImageRepository imageRepository,
-						@Value("${file.upload-dir:./uploads/images}") String uploadDir) {
+						ImageVariantRepository imageVariantRepository,
+						ApplicationEventPublisher eventPublisher,
+						ImageMapper imageMapper,
+						ImageUrlResolver imageUrlResolver,
+						ImageContentCache imageContentCache,
+						ImageStorage imageStorage,
+						@Value("${file.upload-dir:./uploads/images}") String uploadDir,
+						@Value("${app.images.max-upload-size:10MB}") DataSize maxUploadSize,
+						@Value("${app.images.max-dimension:8192}") int maxDimension,
+						@Value("${app.images.max-pixels:40000000}") long maxPixels) {
 		this.imageRepository = imageRepository;
-		this.fileStorageLocation = Paths.get(uploadDir)
-				.toAbsolutePath().normalize();
+		this.imageVariantRepository = imageVariantRepository;
+		this.eventPublisher = eventPublisher;
+		this.imageMapper = imageMapper;
+		this.imageUrlResolver = imageUrlResolver;
+		this.imageContentCache = imageContentCache;
+		this.imageStorage = imageStorage;
+		this.tempLocation = Paths.get(uploadDir)
+				.toAbsolutePath().normalize()
+				.resolve("tmp");
+		this.maxUploadSize = maxUploadSize.toBytes();
+		this.maxDimension = maxDimension;
+		this.maxPixels = maxPixels;
+		Arrays.setAll(this.contentLocks, i -> new Object());
 
 		try {
-			Files.createDirectories(this.fileStorageLocation);
+			Files.createDirectories(this.tempLocation);
 		} catch (IOException ex) {
 			throw new RuntimeException("Could not create the directory where the uploaded files will be stored", ex);
 		}
@@ -54,100 +112,376 @@ public class ImageService {
 				.collect(Collectors.toList());
 	}
 
+	/**
+	 * Images with the given ids, fetched with a single query and returned in request order.
+	 * Duplicate ids are returned once, at their first position.
+	 */
+	public BatchGetDto<ImageResponseDto> getImagesByIds(List<Long> ids) {
+		Set<Long> requested = BatchIds.distinct(ids);
+		Map<Long, Image> images = imageRepository.findAllById(requested).stream()
+				.collect(Collectors.toMap(Image::getId, Function.identity()));
+
+		List<ImageResponseDto> content = new ArrayList<>();
+		List<Long> missing = new ArrayList<>();
+		for (Long id : requested) {
+			Image image = images.get(id);
+			if (image != null) {
+				content.add(convertToResponseDto(image));
+			} else {
+				missing.add(id);
+			}
+		}
+		return new BatchGetDto<>(content, missing);
+	}
+
 	public ImageResponseDto getImageById(Long id) {
 		Image image = imageRepository.findById(id)
 				.orElseThrow(() -> new ResourceNotFoundException("Image not found with id: " + id));
 		return convertToResponseDto(image);
 	}
 
-	public Resource loadImageAsResource(Long id) {
-		try {
-			Image image = imageRepository.findById(id)
-					.orElseThrow(() -> new ResourceNotFoundException("Image not found with id: " + id));
+	/**
+	 * Resolves the stored file and caching validators of an image from its metadata row, served
+	 * from {@link ImageContentCache} after the first request. The file itself is not touched, so
+	 * callers can answer conditional requests first.
+	 * <p>
+	 * When a width is requested, the smallest rendition at least that wide is chosen, with the
+	 * original counting as the widest one. Renditions whose type the client does not accept are
+	 * skipped; if nothing is acceptable the original is served. Images whose variants have not
+	 * been generated yet are always served as the original, marked as provisional when a variant
+	 * may still replace it.
+	 *
+	 * @param width    requested display width in pixels, or null for the full size
+	 * @param accepted media types from the Accept header, empty if the client accepts anything
+	 */
+	public ImageContent getImageContent(Long id, Integer width, List<MediaType> accepted) {
+		if (width != null && width <= 0) {
+			throw new BadRequestException("Width must be a positive number of pixels");
+		}
+		ImageContentCache.CachedImage cached = imageContentCache.metadata(id);
+		if (cached == null) {
+			throw new ResourceNotFoundException("Image not found with id: " + id);
+		}
+		Image image = cached.image();
 
-			Path filePath = this.fileStorageLocation.resolve(image.getFilePath()).normalize();
-			Resource resource = new UrlResource(filePath.toUri());
+		String contentType = StringUtils.hasText(image.getFileType())
+				? image.getFileType()
+				: MediaType.APPLICATION_OCTET_STREAM_VALUE;
+		Date modified = image.getUpdatedAt() != null ? image.getUpdatedAt() : image.getCreatedAt();
+		long lastModified = modified != null ? modified.getTime() : -1;
+		String etag = image.getId() + "-" + lastModified + "-" + image.getFileSize();
 
-			if (resource.exists()) {
-				return resource;
-			} else {
-				throw new ResourceNotFoundException("File not found: " + image.getFileName());
+		boolean originalAcceptable = isAcceptable(contentType, accepted);
+		if (width == null && originalAcceptable) {
+			return new ImageContent(image.getFilePath(), image.getFileName(), contentType,
+					lastModified, "\"" + etag + "\"", false);
+		}
+
+		ImageVariant variant = selectVariant(cached.variants(), width, accepted, originalAcceptable);
+		if (variant == null) {
+			// Only an image wider than requested gets a smaller rendition later
+			boolean provisional = cached.variants().isEmpty()
+					&& (width == null || image.getWidth() == null || image.getWidth() > width);
+			return new ImageContent(image.getFilePath(), image.getFileName(), contentType,
+					lastModified, "\"" + etag + "\"", provisional);
+		}
+		return new ImageContent(variant.getFilePath(), image.getFileName(), variant.getFileType(),
+				lastModified, "\"" + etag + "-w" + variant.getWidth() + "-" + variant.getFileType() + "\"", false);
+	}
+
+	private static ImageVariant selectVariant(List<ImageVariant> variants, Integer width,
+											  List<MediaType> accepted, boolean originalAcceptable) {
+		List<ImageVariant> candidates = variants.stream()
+				.filter(variant -> isAcceptable(variant.getFileType(), accepted))
+				.toList();
+		if (candidates.isEmpty()) {
+			return null;
+		}
+		if (width != null) {
+			// Variants are ordered by width, so the first wide enough one is the smallest
+			for (ImageVariant variant : candidates) {
+				if (variant.getWidth() >= width) {
+					return variant;
+				}
 			}
-		} catch (MalformedURLException ex) {
-			throw new ResourceNotFoundException("File not found" + ex.getMessage());
 		}
+		// Nothing is wide enough: the original is if the client takes it, else the widest variant
+		return originalAcceptable ? null : candidates.get(candidates.size() - 1);
+	}
+
+	private static boolean isAcceptable(String contentType, List<MediaType> accepted) {
+		if (accepted.isEmpty()) {
+			return true;
+		}
+		MediaType type;
+		try {
+			type = MediaType.parseMediaType(contentType);
+		} catch (InvalidMediaTypeException ex) {
+			// Stored types come from upload requests and are not guaranteed to be well-formed
+			return true;
+		}
+		return accepted.stream()
+				.anyMatch(mediaType -> mediaType.getQualityValue() > 0 && mediaType.includes(type));
+	}
+
+	/**
+	 * Opens the stored bytes of an image or variant.
+	 *
+	 * @throws NoSuchFileException if they are missing from storage
+	 */
+	public StoredImage openContent(ImageContent content) throws IOException {
+		return imageStorage.open(content.storedPath());
+	}
+
+	/**
+	 * Creates an empty temporary file next to the upload directory, from which it can be moved
+	 * into local storage without copying.
+	 */
+	Path createTempFile(String suffix) throws IOException {
+		Files.createDirectories(this.tempLocation);
+		return Files.createTempFile(this.tempLocation, "upload-", suffix);
 	}
 
-	@Transactional
 	public ImageResponseDto storeImage(MultipartFile file, String description) {
+		try (InputStream in = file.getInputStream()) {
+			return storeImage(in, file.getOriginalFilename(), file.getSize(), description);
+		} catch (IOException ex) {
+			throw new RuntimeException("Could not store file " + file.getOriginalFilename() + ". Please try again!", ex);
+		}
+	}
+
+	/**
+	 * Stores an upload under a path derived from the SHA-256 of its content. Content that is
+	 * already stored is not kept twice: the existing image gains a reference and is returned,
+	 * keeping its original name and description.
+	 * <p>
+	 * The upload is read in a single pass that writes it to a temporary file, hashes it and reads
+	 * its format and dimensions from the header. The declared type is ignored in favour of the
+	 * detected one, and the upload is rejected as soon as it turns out too large, not an image or
+	 * too big in pixels, without reading the rest of it.
+	 *
+	 * @param declaredSize size announced by the client, or -1 when unknown
+	 * @throws BadRequestException if the upload is not a supported image or exceeds the limits
+	 */
+	public ImageResponseDto storeImage(InputStream in, String fileName, long declaredSize, String description)
+			throws IOException {
 		// Normalize file name
-		String originalFilename = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
+		String originalFilename = StringUtils.cleanPath(Objects.requireNonNull(fileName));
 
 		// Check if filename contains invalid characters
 		if (originalFilename.contains("..")) {
 			throw new BadRequestException("Filename contains invalid path sequence: " + originalFilename);
 		}
+		if (declaredSize > maxUploadSize) {
+			throw new BadRequestException("Image exceeds the maximum size of " + maxUploadSize + " bytes");
+		}
 
-		// Generate unique filename to prevent overwriting
-		String fileExtension = StringUtils.getFilenameExtension(originalFilename);
-		String uniqueFilename = UUID.randomUUID() + "." + fileExtension;
+		Path tempFile = null;
+		try {
+			tempFile = createTempFile(".tmp");
+			StoredUpload upload = writeAndInspect(in, tempFile);
+			synchronized (contentLock(upload.contentHash())) {
+				return storeUpload(upload, tempFile, originalFilename, description);
+			}
+		} finally {
+			if (tempFile != null) {
+				deleteTempFile(tempFile);
+			}
+		}
+	}
+
+	private ImageResponseDto storeUpload(StoredUpload upload, Path tempFile, String originalFilename,
+										 String description) throws IOException {
+		if (imageRepository.incrementRefCount(upload.contentHash()) > 0) {
+			return findByContentHash(upload.contentHash());
+		}
+
+		String storedPath = contentKey(upload.contentHash());
+		imageStorage.store(storedPath, tempFile);
+
+		// Save image metadata to database
+		Image image = new Image();
+		image.setFileName(originalFilename);
+		image.setFilePath(storedPath);
+		image.setFileType(upload.format().mediaType());
+		image.setFileSize(upload.size());
+		image.setWidth(upload.width());
+		image.setHeight(upload.height());
+		image.setDescription(description);
+		image.setContentHash(upload.contentHash());
 
+		Image savedImage;
 		try {
-			// Copy file to the target location
-			Path targetLocation = this.fileStorageLocation.resolve(uniqueFilename);
-			Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-
-			// Save image metadata to database
-			Image image = new Image();
-			image.setFileName(originalFilename);
-			image.setFilePath(uniqueFilename);
-			image.setFileType(file.getContentType());
-			image.setFileSize(file.getSize());
-			image.setDescription(description);
-
-			Image savedImage = imageRepository.save(image);
-			return convertToResponseDto(savedImage);
+			savedImage = imageRepository.save(image);
+		} catch (DataIntegrityViolationException ex) {
+			// A concurrent upload of the same content created the row first
+			if (imageRepository.incrementRefCount(upload.contentHash()) == 0) {
+				throw ex;
+			}
+			return findByContentHash(upload.contentHash());
+		}
+		eventPublisher.publishEvent(new ImageStoredEvent(savedImage.getId()));
+		return convertToResponseDto(savedImage);
+	}
+
+	private record StoredUpload(String contentHash, long size, ImageFormat format, int width, int height) {
+	}
+
+	private StoredUpload writeAndInspect(InputStream in, Path target) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is not available", ex);
+		}
+		ImageHeaderParser header = new ImageHeaderParser();
+		ByteBuffer buffer = ByteBuffer.allocate(UPLOAD_BUFFER_SIZE);
+		long size = 0;
+
+		try (ReadableByteChannel source = Channels.newChannel(in);
+			 FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (source.read(buffer) >= 0) {
+				buffer.flip();
+				size += buffer.remaining();
+				if (size > maxUploadSize) {
+					throw new BadRequestException("Image exceeds the maximum size of " + maxUploadSize + " bytes");
+				}
+				if (!header.isComplete()) {
+					header.update(buffer);
+					if (header.isComplete()) {
+						checkHeader(header);
+					}
+				}
+				buffer.mark();
+				digest.update(buffer);
+				buffer.reset();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				buffer.clear();
+			}
+		}
+
+		if (!header.isComplete()) {
+			header.finish();
+			checkHeader(header);
+		}
+		return new StoredUpload(HexFormat.of().formatHex(digest.digest()), size,
+				header.format(), header.width(), header.height());
+	}
+
+	private void checkHeader(ImageHeaderParser header) {
+		if (header.isInvalid()) {
+			throw new BadRequestException("File is not a supported image, expected JPEG, PNG, GIF or WebP");
+		}
+		if (header.width() > maxDimension || header.height() > maxDimension
+				|| (long) header.width() * header.height() > maxPixels) {
+			throw new BadRequestException("Image dimensions " + header.width() + "x" + header.height()
+					+ " exceed the limit of " + maxDimension + " pixels per side and " + maxPixels + " pixels");
+		}
+	}
+
+	/**
+	 * Shards content by the first two bytes of its hash, keeping directories small:
+	 * {@code ab/cd/abcd...}.
+	 */
+	static String contentKey(String contentHash) {
+		return contentHash.substring(0, 2) + "/" + contentHash.substring(2, 4) + "/" + contentHash;
+	}
+
+	/**
+	 * Returns the lock held while the files of some content are stored or deleted. Uploads,
+	 * variant generation and file deletion take it, so deleting the files of a deleted image
+	 * cannot interleave with a re-upload of the same content storing them anew. The lock only
+	 * spans this instance; images stored before hashing share a single stripe.
+	 */
+	Object contentLock(String contentHash) {
+		return contentLocks[Math.floorMod(Objects.hashCode(contentHash), contentLocks.length)];
+	}
+
+	/**
+	 * Whether an image with the given content exists, in which case its keys belong to it.
+	 * Callers hold {@link #contentLock(String)}.
+	 */
+	boolean isContentLive(String contentHash) {
+		return contentHash != null && imageRepository.existsByContentHash(contentHash);
+	}
+
+	private ImageResponseDto findByContentHash(String contentHash) {
+		return imageRepository.findByContentHash(contentHash)
+				.map(this::convertToResponseDto)
+				.orElseThrow(() -> new IllegalStateException("Image with content " + contentHash + " disappeared"));
+	}
+
+	private static void deleteTempFile(Path tempFile) {
+		try {
+			Files.deleteIfExists(tempFile);
 		} catch (IOException ex) {
-			throw new RuntimeException("Could not store file " + originalFilename + ". Please try again!", ex);
+			log.warn("Could not delete temporary file {}", tempFile, ex);
 		}
 	}
 
+	/**
+	 * Drops one reference to an image. The image, its variants and their files are only removed
+	 * once no other upload refers to the same content.
+	 * <p>
+	 * The row stays locked until commit, so a concurrent upload of the same content either adds
+	 * its reference first or finds the image gone and stores it anew. Files are only deleted after
+	 * the commit, see {@link #onImageDeleted(ImageDeletedEvent)}.
+	 */
 	@Transactional
 	public void deleteImage(Long id) {
-		Image image = imageRepository.findById(id)
+		Image image = imageRepository.findByIdForUpdate(id)
 				.orElseThrow(() -> new ResourceNotFoundException("Image not found with id: " + id));
-
-		// Delete image file from storage
-		try {
-			Path filePath = this.fileStorageLocation.resolve(image.getFilePath());
-			Files.deleteIfExists(filePath);
-		} catch (IOException ex) {
-			// Log error but continue with deletion from database
-			System.err.println("Could not delete file " + image.getFilePath() + ": " + ex.getMessage());
+		if (imageRepository.decrementRefCount(id) > 0) {
+			return;
 		}
 
+		List<String> storedPaths = new ArrayList<>();
+		storedPaths.add(image.getFilePath());
+		imageVariantRepository.findByImageIdOrderByWidthAsc(id)
+				.forEach(variant -> storedPaths.add(variant.getFilePath()));
+
 		// Delete image metadata from database
+		imageVariantRepository.deleteByImageId(id);
 		imageRepository.deleteById(id);
+		eventPublisher.publishEvent(new ImageDeletedEvent(id, image.getContentHash(), storedPaths));
 	}
 
-	private ImageResponseDto convertToResponseDto(Image image) {
-		ImageResponseDto dto = new ImageResponseDto();
-		BeanUtils.copyProperties(image, dto);
+	/**
+	 * Deletes the original and variant files of a deleted image once the deletion has committed,
+	 * so a rolled back deletion does not leave rows pointing at missing files.
+	 * <p>
+	 * Keys are derived from the content, so an upload of the same content after the commit stores
+	 * its files under the same keys. Such files are kept, the new image owns them.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onImageDeleted(ImageDeletedEvent event) {
+		synchronized (contentLock(event.contentHash())) {
+			if (isContentLive(event.contentHash())) {
+				log.debug("Content of deleted image {} was uploaded again, keeping its files", event.imageId());
+				return;
+			}
+			event.storedPaths().forEach(this::deleteStoredFile);
+		}
+	}
 
-		// Generate URL for the image
-		String imageUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
-				.path("/api/images/")
-				.path(image.getId().toString())
-				.path("/content")
-				.toUriString();
+	private void deleteStoredFile(String storedPath) {
+		try {
+			imageStorage.delete(storedPath);
+		} catch (IOException ex) {
+			// The metadata is already gone, the file is only left behind
+			log.warn("Could not delete stored image {}", storedPath, ex);
+		}
+	}
 
-		dto.setUrl(imageUrl);
+	private ImageResponseDto convertToResponseDto(Image image) {
+		ImageResponseDto dto = imageMapper.toResponseDto(image);
+		dto.setUrl(imageUrlResolver.contentUrl(image));
 		return dto;
 	}
 
 	public ImageDto convertToDto(Image image) {
-		ImageDto dto = new ImageDto();
-		BeanUtils.copyProperties(image, dto);
-		return dto;
+		return imageMapper.toDto(image);
 	}
 }
\ No newline at end of file
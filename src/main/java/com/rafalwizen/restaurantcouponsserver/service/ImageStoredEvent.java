@@ -0,0 +1,8 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+/**
+ * Published when a new image has been stored, so derived renditions can be generated once the
+ * upload transaction has committed.
+ */
+public record ImageStoredEvent(Long imageId) {
+}
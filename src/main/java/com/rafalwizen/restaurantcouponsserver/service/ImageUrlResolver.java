@@ -0,0 +1,116 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Builds public image URLs by plain string concatenation against an origin that is resolved at
+ * most once per request.
+ * <p>
+ * When {@code app.images.base-url} is set (e.g. a CDN hostname) it is used for every URL and no
+ * request is needed, so DTOs can also be built in caches and background jobs. Otherwise the origin
+ * is derived from the current request and remembered on it. Outside a request without a configured
+ * base URL, root-relative URLs are returned.
+ * <p>
+ * When {@link ImageUrlSigner signing} is configured, images are linked by signed URLs naming their
+ * stored object, which the content endpoint serves without a database lookup and clients may cache
+ * as immutable. The metadata needed to sign them comes from the {@link ImageContentCache}. The
+ * id-based URLs stay available, e.g. for exports that outlive any signature.
+ */
+@Component
+public class ImageUrlResolver {
+
+    private static final String ORIGIN_ATTRIBUTE = ImageUrlResolver.class.getName() + ".origin";
+    private static final String CONTENT_PATH = "/api/images/";
+    private static final String CONTENT_SUFFIX = "/content";
+    private static final String SIGNED_CONTENT_PATH = "/api/images/content/";
+
+    private final String configuredOrigin;
+    private final ImageUrlSigner signer;
+    private final ImageContentCache imageContentCache;
+
+    /**
+     * Creates a resolver that only builds id-based URLs.
+     */
+    public ImageUrlResolver(String baseUrl) {
+        this(baseUrl, null, null);
+    }
+
+    @Autowired
+    public ImageUrlResolver(@Value("${app.images.base-url:}") String baseUrl,
+                            ImageUrlSigner signer,
+                            ImageContentCache imageContentCache) {
+        this.configuredOrigin = StringUtils.hasText(baseUrl) ? StringUtils.trimTrailingCharacter(baseUrl.trim(), '/') : null;
+        this.signer = signer != null && signer.isEnabled() ? signer : null;
+        this.imageContentCache = imageContentCache;
+    }
+
+    /**
+     * Builds the URL of an image known only by id, signed if signing is configured and the image
+     * exists.
+     */
+    public String contentUrl(Long imageId) {
+        if (signer != null) {
+            ImageContentCache.CachedImage cached = imageContentCache.metadata(imageId);
+            if (cached != null) {
+                return contentUrl(cached.image());
+            }
+        }
+        return contentUrl(origin(), imageId);
+    }
+
+    /**
+     * Builds the URL of an image, signed if signing is configured.
+     */
+    public String contentUrl(Image image) {
+        if (signer == null) {
+            return contentUrl(origin(), image.getId());
+        }
+        String contentType = StringUtils.hasText(image.getFileType())
+                ? image.getFileType()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        return origin() + SIGNED_CONTENT_PATH + signer.sign(image.getFilePath(), contentType);
+    }
+
+    /**
+     * Builds the id-based URL against an origin resolved earlier, for work that continues after
+     * the request thread has moved on.
+     */
+    public String contentUrl(String origin, Long imageId) {
+        return origin + CONTENT_PATH + imageId + CONTENT_SUFFIX;
+    }
+
+    /**
+     * Returns the expiry, in epoch seconds, of URLs signed now, or 0 if URLs are not signed. It
+     * changes once per expiry window, after which newly built URLs differ from earlier ones.
+     */
+    public long signatureExpiry() {
+        return signer != null ? signer.currentExpiry() : 0;
+    }
+
+    /**
+     * Returns the origin image URLs are currently built against, empty for root-relative URLs.
+     */
+    public String origin() {
+        if (configuredOrigin != null) {
+            return configuredOrigin;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return "";
+        }
+        String origin = (String) attributes.getAttribute(ORIGIN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (origin == null) {
+            origin = ServletUriComponentsBuilder.fromCurrentContextPath().toUriString();
+            attributes.setAttribute(ORIGIN_ATTRIBUTE, origin, RequestAttributes.SCOPE_REQUEST);
+        }
+        return origin;
+    }
+}
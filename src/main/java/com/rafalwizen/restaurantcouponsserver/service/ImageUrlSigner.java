@@ -0,0 +1,150 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Signs and verifies stateless image URL tokens that name a stored object directly, so the content
+ * endpoint can serve them without reading image metadata.
+ * <p>
+ * A token is the URL-safe Base64 of the expiry, content type and storage key, followed by an
+ * HMAC-SHA256 of that text under {@code app.images.signed-urls.secret}. Expiries are rounded up to
+ * {@code app.images.signed-urls.expiry-granularity}, so all URLs signed for an object within one
+ * window are identical and stay cacheable, and each stays valid for at least
+ * {@code app.images.signed-urls.ttl}. Signing is disabled while no secret is configured.
+ */
+@Component
+public class ImageUrlSigner {
+
+    /**
+     * A verified token.
+     *
+     * @param expiresAt epoch seconds after which the token is no longer accepted
+     */
+    public record SignedImage(String storedPath, String contentType, long expiresAt) {
+    }
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    // Initialised once and cloned per signature, as initialising a Mac costs more than the HMAC itself
+    private final Mac prototype;
+    private final long ttlSeconds;
+    private final long granularitySeconds;
+    // Not final so tests can move past a signature window
+    private Clock clock = Clock.systemUTC();
+
+    @Autowired
+    public ImageUrlSigner(@Value("${app.images.signed-urls.secret:}") String secret,
+                          @Value("${app.images.signed-urls.ttl:P7D}") Duration ttl,
+                          @Value("${app.images.signed-urls.expiry-granularity:PT1H}") Duration granularity) {
+        this.key = StringUtils.hasText(secret) ? new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM) : null;
+        this.prototype = key != null ? newMac(key) : null;
+        this.ttlSeconds = ttl.toSeconds();
+        this.granularitySeconds = Math.max(1, granularity.toSeconds());
+    }
+
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    /**
+     * Returns the expiry, in epoch seconds, of tokens signed now.
+     */
+    public long currentExpiry() {
+        return expiryAt(clock.millis());
+    }
+
+    long expiryAt(long nowMillis) {
+        long earliest = Math.floorDiv(nowMillis, 1000L) + ttlSeconds;
+        return Math.ceilDiv(earliest, granularitySeconds) * granularitySeconds;
+    }
+
+    /**
+     * Signs a token for a stored object expiring at {@link #currentExpiry()}.
+     *
+     * @throws IllegalStateException if signing is disabled
+     */
+    public String sign(String storedPath, String contentType) {
+        return sign(storedPath, contentType, currentExpiry());
+    }
+
+    String sign(String storedPath, String contentType, long expiresAt) {
+        if (key == null) {
+            throw new IllegalStateException("Signed image URLs are not configured");
+        }
+        String payload = ENCODER.encodeToString((expiresAt + "\n" + contentType + "\n" + storedPath)
+                .getBytes(StandardCharsets.UTF_8));
+        return payload + "." + ENCODER.encodeToString(mac(payload));
+    }
+
+    /**
+     * Checks a token's signature and expiry.
+     *
+     * @throws ResourceNotFoundException if the token is malformed, forged or expired
+     */
+    public SignedImage verify(String token) {
+        return verify(token, clock.millis());
+    }
+
+    SignedImage verify(String token, long nowMillis) {
+        int separator = token.indexOf('.');
+        if (key == null || separator < 0) {
+            throw new ResourceNotFoundException("Image not found");
+        }
+        String payload = token.substring(0, separator);
+        byte[] signature;
+        try {
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException ex) {
+            throw new ResourceNotFoundException("Image not found");
+        }
+        // Constant time, so response timing does not reveal how much of a forged signature matched
+        if (!MessageDigest.isEqual(mac(payload), signature)) {
+            throw new ResourceNotFoundException("Image not found");
+        }
+
+        // Only tokens signed here get this far, so the payload is well-formed
+        String[] fields = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split("\n", 3);
+        long expiresAt = Long.parseLong(fields[0]);
+        if (expiresAt <= Math.floorDiv(nowMillis, 1000L)) {
+            throw new ResourceNotFoundException("Image URL has expired");
+        }
+        return new SignedImage(fields[2], fields[1], expiresAt);
+    }
+
+    private byte[] mac(String payload) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException ex) {
+            // Only providers whose Mac cannot be cloned pay for a fresh one per call
+            mac = newMac(key);
+        }
+        return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Could not initialise image URL signatures", ex);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import com.rafalwizen.restaurantcouponsserver.model.ImageVariant;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageVariantRepository;
+import com.rafalwizen.restaurantcouponsserver.storage.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generates downscaled renditions of uploaded images in the background with the JDK's ImageIO.
+ * <p>
+ * Opaque images are re-encoded as JPEG and images with transparency as PNG. Only widths smaller
+ * than the original are generated. Each variant is recorded after it has been stored, so
+ * readers only ever see complete variants and use the original until then.
+ */
+@Component
+public class ImageVariantGenerator {
+
+	private static final Logger log = LoggerFactory.getLogger(ImageVariantGenerator.class);
+
+	private final ImageRepository imageRepository;
+	private final ImageVariantRepository imageVariantRepository;
+	private final ImageService imageService;
+	private final ImageContentCache imageContentCache;
+	private final ImageStorage imageStorage;
+	private final TaskExecutor executor;
+	private final List<Integer> widths;
+	private final float jpegQuality;
+
+	@Autowired
+	public ImageVariantGenerator(ImageRepository imageRepository,
+								 ImageVariantRepository imageVariantRepository,
+								 ImageService imageService,
+								 ImageContentCache imageContentCache,
+								 ImageStorage imageStorage,
+								 @Qualifier("imageVariantExecutor") TaskExecutor executor,
+								 @Value("${app.images.variant-widths:320,640,1280}") int[] widths,
+								 @Value("${app.images.variant-jpeg-quality:0.85}") float jpegQuality) {
+		this.imageRepository = imageRepository;
+		this.imageVariantRepository = imageVariantRepository;
+		this.imageService = imageService;
+		this.imageContentCache = imageContentCache;
+		this.imageStorage = imageStorage;
+		this.executor = executor;
+		this.widths = Arrays.stream(widths)
+				.filter(width -> width > 0)
+				.distinct()
+				.sorted()
+				.boxed()
+				.toList();
+		this.jpegQuality = jpegQuality;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onImageStored(ImageStoredEvent event) {
+		if (widths.isEmpty()) {
+			return;
+		}
+		try {
+			executor.execute(() -> generateVariants(event.imageId()));
+		} catch (TaskRejectedException ex) {
+			log.warn("Variant generation queue is full, image {} will only be served in its original size",
+					event.imageId());
+		}
+	}
+
+	/**
+	 * Generates the configured variants that do not exist yet for an image.
+	 */
+	public void generateVariants(Long imageId) {
+		Image image = imageRepository.findById(imageId).orElse(null);
+		if (image == null) {
+			return;
+		}
+		try {
+			String original = image.getFilePath();
+			BufferedImage source;
+			try (InputStream in = imageStorage.open(original).openStream()) {
+				source = ImageIO.read(in);
+			}
+			if (source == null) {
+				log.debug("No ImageIO reader for image {} of type {}, skipping variants", imageId, image.getFileType());
+				return;
+			}
+
+			boolean transparent = source.getColorModel().hasAlpha();
+			String fileType = transparent ? MediaType.IMAGE_PNG_VALUE : MediaType.IMAGE_JPEG_VALUE;
+			Set<Integer> existing = imageVariantRepository.findByImageIdOrderByWidthAsc(imageId).stream()
+					.filter(variant -> variant.getFileType().equals(fileType))
+					.map(ImageVariant::getWidth)
+					.collect(Collectors.toSet());
+
+			for (int width : widths) {
+				if (width >= source.getWidth() || existing.contains(width)) {
+					continue;
+				}
+				int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+				BufferedImage scaled = scale(source, width, height, transparent);
+				storeVariant(image, scaled, fileType, original);
+			}
+		} catch (IOException | RuntimeException ex) {
+			log.error("Could not generate variants for image {}", imageId, ex);
+		} finally {
+			// Cached metadata would otherwise keep serving the image without its new variants
+			imageContentCache.invalidate(imageId);
+		}
+	}
+
+	private void storeVariant(Image image, BufferedImage scaled, String fileType, String original) throws IOException {
+		String extension = MediaType.IMAGE_PNG_VALUE.equals(fileType) ? "png" : "jpg";
+		String storedPath = StringUtils.stripFilenameExtension(original) + "-w" + scaled.getWidth() + "." + extension;
+
+		Path temp = imageService.createTempFile("." + extension);
+		try {
+			write(scaled, fileType, temp);
+			ImageVariant variant = new ImageVariant();
+			variant.setImageId(image.getId());
+			variant.setWidth(scaled.getWidth());
+			variant.setHeight(scaled.getHeight());
+			variant.setFilePath(storedPath);
+			variant.setFileType(fileType);
+			variant.setFileSize(Files.size(temp));
+
+			synchronized (imageService.contentLock(image.getContentHash())) {
+				imageStorage.store(storedPath, temp);
+				try {
+					imageVariantRepository.save(variant);
+				} catch (DataIntegrityViolationException ex) {
+					// The image was deleted while the variant was being generated, the key is
+					// only left alone if the same content has been uploaded again since
+					if (!imageService.isContentLive(image.getContentHash())) {
+						imageStorage.delete(storedPath);
+					}
+					throw ex;
+				}
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private void write(BufferedImage image, String fileType, Path target) throws IOException {
+		if (MediaType.IMAGE_PNG_VALUE.equals(fileType)) {
+			if (!ImageIO.write(image, "png", target.toFile())) {
+				throw new IOException("No PNG writer available");
+			}
+			return;
+		}
+
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		param.setCompressionQuality(jpegQuality);
+		Files.deleteIfExists(target);
+		try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+			writer.setOutput(output);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	/**
+	 * Scales in steps of at most one half, which keeps bilinear filtering from skipping source
+	 * pixels and gives results close to area averaging at a fraction of its cost.
+	 */
+	static BufferedImage scale(BufferedImage source, int width, int height, boolean transparent) {
+		int type = transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		BufferedImage current = source;
+		int currentWidth = source.getWidth();
+		int currentHeight = source.getHeight();
+		do {
+			currentWidth = Math.max(width, currentWidth / 2);
+			currentHeight = Math.max(height, currentHeight / 2);
+			BufferedImage step = new BufferedImage(currentWidth, currentHeight, type);
+			Graphics2D graphics = step.createGraphics();
+			try {
+				graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+			} finally {
+				graphics.dispose();
+			}
+			current = step;
+		} while (currentWidth != width || currentHeight != height);
+		return current;
+	}
+}
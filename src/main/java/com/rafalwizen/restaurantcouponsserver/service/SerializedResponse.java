@@ -0,0 +1,7 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+/**
+ * A JSON response body serialized ahead of time, in plain and gzip-encoded form.
+ */
+public record SerializedResponse(byte[] body, byte[] gzipBody) {
+}
@@ -0,0 +1,35 @@
+package com.rafalwizen.restaurantcouponsserver.storage;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Where image and variant bytes live. Objects are addressed by the key recorded as the file path
+ * of their image or variant row, and are immutable: a key is only ever stored with one content.
+ * <p>
+ * The backend is chosen with {@code app.images.storage}: {@code local} (the default) keeps one
+ * file per key under {@code file.upload-dir}, {@code segments} packs objects into large segment
+ * files, see {@link SegmentImageStorage}.
+ */
+public interface ImageStorage {
+
+	/**
+	 * Stores the content of {@code source} under {@code key}, consuming the source file. Storing a
+	 * key that already exists replaces its object, so the key always holds the bytes of its last
+	 * store even when a deletion of the same key raced with it.
+	 */
+	void store(String key, Path source) throws IOException;
+
+	/**
+	 * Opens the object stored under {@code key} for reading.
+	 *
+	 * @throws NoSuchFileException if nothing is stored under the key
+	 */
+	StoredImage open(String key) throws IOException;
+
+	/**
+	 * Removes the object stored under {@code key}, if any.
+	 */
+	void delete(String key) throws IOException;
+}
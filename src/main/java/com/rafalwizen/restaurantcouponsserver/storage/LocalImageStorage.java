@@ -0,0 +1,90 @@
+package com.rafalwizen.restaurantcouponsserver.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores every object as a file of its own under the upload directory, the key being its path
+ * relative to that directory.
+ */
+@Component
+@ConditionalOnProperty(name = "app.images.storage", havingValue = "local", matchIfMissing = true)
+public class LocalImageStorage implements ImageStorage {
+
+	private final Path root;
+
+	@Autowired
+	public LocalImageStorage(@Value("${file.upload-dir:./uploads/images}") String uploadDir) {
+		this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+	}
+
+	@Override
+	public void store(String key, Path source) throws IOException {
+		Path target = resolve(key);
+		Files.createDirectories(target.getParent());
+		// Replacing is harmless, a file at this path can only hold the same content
+		Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	@Override
+	public StoredImage open(String key) throws IOException {
+		Path file = resolve(key);
+		return new FileStoredImage(file, Files.size(file));
+	}
+
+	@Override
+	public void delete(String key) throws IOException {
+		Files.deleteIfExists(resolve(key));
+	}
+
+	/**
+	 * Resolves a key against the upload directory, rejecting keys that escape it.
+	 */
+	Path resolve(String key) throws NoSuchFileException {
+		Path file = root.resolve(key).normalize();
+		if (!file.startsWith(root)) {
+			throw new NoSuchFileException(key);
+		}
+		return file;
+	}
+
+	private record FileStoredImage(Path file, long length) implements StoredImage {
+
+		/**
+		 * Copies with {@link FileChannel#transferTo}, which avoids user-space buffers where the
+		 * platform allows.
+		 */
+		@Override
+		public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				long remaining = count;
+				while (remaining > 0) {
+					long written = channel.transferTo(position, remaining, target);
+					if (written <= 0) {
+						break;
+					}
+					position += written;
+					remaining -= written;
+				}
+			}
+		}
+
+		@Override
+		public InputStream openStream() throws IOException {
+			return Files.newInputStream(file);
+		}
+	}
+}
@@ -0,0 +1,435 @@
+package com.rafalwizen.restaurantcouponsserver.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Packs objects back to back into segment files of up to {@code app.images.segments.max-size}
+ * and serves reads from memory-mapped segments, so a request costs no open, stat or close.
+ * <p>
+ * The key to segment, offset and length index lives in memory and is persisted as an append-only
+ * journal next to the segments, rewritten as a snapshot on startup and after compaction. An
+ * object's bytes are forced to disk before its journal entry, so a crash can at worst leave
+ * unreferenced bytes behind, which compaction reclaims.
+ * <p>
+ * Deleting an object only drops its index entry. The compactor periodically rewrites the live
+ * objects of sealed segments whose dead share exceeds {@code app.images.segments.compaction-threshold}
+ * into the active segment and removes the old file. Readers that mapped it keep a valid mapping.
+ * <p>
+ * Keys missing from the index are looked up in the upload directory, so images stored by the
+ * local backend stay readable after switching.
+ */
+@Component
+@ConditionalOnProperty(name = "app.images.storage", havingValue = "segments")
+public class SegmentImageStorage implements ImageStorage {
+
+	private static final Logger log = LoggerFactory.getLogger(SegmentImageStorage.class);
+
+	private static final String INDEX_FILE = "index.log";
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".dat";
+
+	private record Location(int segment, long offset, int length) {
+	}
+
+	private static final class Segment {
+
+		final int id;
+		final Path path;
+		final FileChannel channel;
+		// Guarded by the storage's write lock
+		long size;
+		long deadBytes;
+		private volatile MappedByteBuffer mapped;
+
+		Segment(int id, Path path) throws IOException {
+			this.id = id;
+			this.path = path;
+			this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.size = channel.size();
+		}
+
+		/**
+		 * Returns a read-only view of {@code length} bytes at {@code offset}, remapping the file
+		 * when it has grown past the current mapping.
+		 */
+		ByteBuffer slice(long offset, int length) throws IOException {
+			MappedByteBuffer buffer = mapped;
+			if (buffer == null || buffer.capacity() < offset + length) {
+				synchronized (this) {
+					buffer = mapped;
+					if (buffer == null || buffer.capacity() < offset + length) {
+						buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+						mapped = buffer;
+					}
+				}
+			}
+			return buffer.slice((int) offset, length);
+		}
+	}
+
+	private final Path directory;
+	private final long maxSegmentSize;
+	private final double compactionThreshold;
+	private final LocalImageStorage fallback;
+	private final Map<String, Location> index = new ConcurrentHashMap<>();
+	private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+	private final Object writeLock = new Object();
+
+	// Guarded by writeLock
+	private Segment active;
+	private FileChannel journal;
+
+	@Autowired
+	public SegmentImageStorage(@Value("${file.upload-dir:./uploads/images}") String uploadDir,
+							   @Value("${app.images.segments.dir:}") String segmentDir,
+							   @Value("${app.images.segments.max-size:256MB}") DataSize maxSegmentSize,
+							   @Value("${app.images.segments.compaction-threshold:0.5}") double compactionThreshold)
+			throws IOException {
+		Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+		this.directory = segmentDir.isEmpty() ? root.resolve("segments") : Paths.get(segmentDir).toAbsolutePath().normalize();
+		// Offsets within a mapping are ints
+		this.maxSegmentSize = Math.min(maxSegmentSize.toBytes(), Integer.MAX_VALUE);
+		this.compactionThreshold = compactionThreshold;
+		this.fallback = new LocalImageStorage(uploadDir);
+
+		Files.createDirectories(directory);
+		synchronized (writeLock) {
+			openSegments();
+			replayJournal();
+			writeSnapshot();
+		}
+	}
+
+	@Override
+	public void store(String key, Path source) throws IOException {
+		checkKey(key);
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+			synchronized (writeLock) {
+				Location location = append(in, in.size());
+				journal("P " + location.segment() + " " + location.offset() + " " + location.length() + " " + key);
+				Location replaced = index.put(key, location);
+				if (replaced != null) {
+					markDead(replaced);
+				}
+			}
+		}
+		Files.deleteIfExists(source);
+	}
+
+	@Override
+	public StoredImage open(String key) throws IOException {
+		StoredImage image = tryOpen(key);
+		if (image == null) {
+			// The segment was compacted after the lookup. Compaction holds the write lock, so the
+			// index and the segments agree while it is held.
+			synchronized (writeLock) {
+				image = tryOpen(key);
+			}
+			if (image == null) {
+				throw new IOException("Image segment of " + key + " is closed");
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Maps the object stored under a key, or returns {@code null} if its segment was closed
+	 * after the lookup.
+	 */
+	private StoredImage tryOpen(String key) throws IOException {
+		Location location = index.get(key);
+		if (location == null) {
+			return fallback.open(key);
+		}
+		Segment segment = segments.get(location.segment());
+		if (segment == null) {
+			return null;
+		}
+		try {
+			return new MappedStoredImage(segment.slice(location.offset(), location.length()));
+		} catch (ClosedChannelException ex) {
+			return null;
+		}
+	}
+
+	@Override
+	public void delete(String key) throws IOException {
+		synchronized (writeLock) {
+			Location location = index.remove(key);
+			if (location == null) {
+				fallback.delete(key);
+				return;
+			}
+			journal("D " + key);
+			markDead(location);
+		}
+	}
+
+	private void markDead(Location location) {
+		Segment segment = segments.get(location.segment());
+		if (segment != null) {
+			segment.deadBytes += location.length();
+		}
+	}
+
+	/**
+	 * Rewrites sealed segments that are mostly dead. Uploads wait while a segment is rewritten.
+	 */
+	@Scheduled(fixedDelayString = "${app.images.segments.compaction-interval-ms:600000}")
+	public void compact() {
+		synchronized (writeLock) {
+			List<Segment> candidates = segments.values().stream()
+					.filter(segment -> segment != active)
+					.filter(segment -> segment.size == 0 || (double) segment.deadBytes / segment.size >= compactionThreshold)
+					.toList();
+			if (candidates.isEmpty()) {
+				return;
+			}
+			try {
+				for (Segment segment : candidates) {
+					compact(segment);
+				}
+				writeSnapshot();
+			} catch (IOException ex) {
+				log.error("Could not compact image segments", ex);
+			}
+		}
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		synchronized (writeLock) {
+			journal.close();
+			for (Segment segment : segments.values()) {
+				segment.channel.close();
+			}
+		}
+	}
+
+	private void compact(Segment segment) throws IOException {
+		long moved = 0;
+		for (Map.Entry<String, Location> entry : List.copyOf(index.entrySet())) {
+			Location location = entry.getValue();
+			if (location.segment() != segment.id) {
+				continue;
+			}
+			ByteBuffer data = segment.slice(location.offset(), location.length());
+			Location relocated = append(data);
+			journal("P " + relocated.segment() + " " + relocated.offset() + " " + relocated.length() + " " + entry.getKey());
+			index.put(entry.getKey(), relocated);
+			moved += location.length();
+		}
+		segments.remove(segment.id);
+		segment.channel.close();
+		Files.deleteIfExists(segment.path);
+		log.info("Compacted image segment {}: moved {} bytes, reclaimed {} bytes", segment.id, moved, segment.size - moved);
+	}
+
+	private Location append(FileChannel source, long length) throws IOException {
+		Segment segment = segmentFor(length);
+		long offset = segment.size;
+		long position = 0;
+		while (position < length) {
+			long written = source.transferTo(position, length - position, segment.channel.position(offset + position));
+			if (written <= 0) {
+				throw new IOException("Could not append to image segment " + segment.id);
+			}
+			position += written;
+		}
+		return sealAppend(segment, offset, length);
+	}
+
+	private Location append(ByteBuffer data) throws IOException {
+		int length = data.remaining();
+		Segment segment = segmentFor(length);
+		long offset = segment.size;
+		long position = offset;
+		while (data.hasRemaining()) {
+			position += segment.channel.write(data, position);
+		}
+		return sealAppend(segment, offset, length);
+	}
+
+	private Location sealAppend(Segment segment, long offset, long length) throws IOException {
+		// The bytes must be durable before the journal entry that points at them
+		segment.channel.force(false);
+		segment.size = offset + length;
+		return new Location(segment.id, offset, (int) length);
+	}
+
+	/**
+	 * Returns the active segment, rolling over to a new one if the object would not fit. An object
+	 * larger than a whole segment gets a segment of its own.
+	 */
+	private Segment segmentFor(long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Image of " + length + " bytes does not fit into a segment");
+		}
+		if (active == null || (active.size > 0 && active.size + length > maxSegmentSize)) {
+			int id = active == null ? 1 : active.id + 1;
+			active = new Segment(id, segmentPath(id));
+			segments.put(id, active);
+		}
+		return active;
+	}
+
+	private void openSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : files.toList()) {
+				String name = file.getFileName().toString();
+				if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+					Segment segment = new Segment(id, file);
+					segments.put(id, segment);
+					if (active == null || id > active.id) {
+						active = segment;
+					}
+				}
+			}
+		}
+	}
+
+	private void replayJournal() throws IOException {
+		Path file = directory.resolve(INDEX_FILE);
+		if (Files.exists(file)) {
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] parts = line.split(" ");
+					if (parts.length == 5 && parts[0].equals("P")) {
+						index.put(parts[4], new Location(Integer.parseInt(parts[1]), Long.parseLong(parts[2]), Integer.parseInt(parts[3])));
+					} else if (parts.length == 2 && parts[0].equals("D")) {
+						index.remove(parts[1]);
+					} else {
+						// A torn last line after a crash, the object it described was never acknowledged
+						log.warn("Ignoring malformed image index entry: {}", line);
+					}
+				}
+			}
+		}
+
+		index.values().removeIf(location -> {
+			Segment segment = segments.get(location.segment());
+			return segment == null || location.offset() + location.length() > segment.size;
+		});
+		Map<Integer, Long> liveBytes = new HashMap<>();
+		index.values().forEach(location -> liveBytes.merge(location.segment(), (long) location.length(), Long::sum));
+		for (Segment segment : segments.values()) {
+			segment.deadBytes = segment.size - liveBytes.getOrDefault(segment.id, 0L);
+		}
+	}
+
+	/**
+	 * Replaces the journal with one entry per live object.
+	 */
+	private void writeSnapshot() throws IOException {
+		Path file = directory.resolve(INDEX_FILE);
+		Path snapshot = directory.resolve(INDEX_FILE + ".tmp");
+		List<String> lines = new ArrayList<>(index.size());
+		index.forEach((key, location) ->
+				lines.add("P " + location.segment() + " " + location.offset() + " " + location.length() + " " + key));
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer content = ByteBuffer.wrap((String.join("\n", lines) + (lines.isEmpty() ? "" : "\n"))
+					.getBytes(StandardCharsets.UTF_8));
+			while (content.hasRemaining()) {
+				channel.write(content);
+			}
+			channel.force(true);
+		}
+		if (journal != null) {
+			journal.close();
+		}
+		Files.move(snapshot, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		journal = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private void journal(String entry) throws IOException {
+		ByteBuffer line = ByteBuffer.wrap((entry + "\n").getBytes(StandardCharsets.UTF_8));
+		while (line.hasRemaining()) {
+			journal.write(line);
+		}
+		journal.force(false);
+	}
+
+	private Path segmentPath(int id) {
+		return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+	}
+
+	private static void checkKey(String key) {
+		if (key.isEmpty() || key.chars().anyMatch(Character::isWhitespace)) {
+			throw new IllegalArgumentException("Image storage key must be non-empty and free of whitespace: " + key);
+		}
+	}
+
+	private record MappedStoredImage(ByteBuffer buffer) implements StoredImage {
+
+		@Override
+		public long length() {
+			return buffer.capacity();
+		}
+
+		@Override
+		public Path file() {
+			return null;
+		}
+
+		@Override
+		public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			ByteBuffer range = buffer.slice((int) position, (int) count);
+			while (range.hasRemaining()) {
+				target.write(range);
+			}
+		}
+
+		@Override
+		public InputStream openStream() {
+			ByteBuffer source = buffer.duplicate();
+			return new InputStream() {
+				@Override
+				public int read() {
+					return source.hasRemaining() ? source.get() & 0xFF : -1;
+				}
+
+				@Override
+				public int read(byte[] bytes, int offset, int length) {
+					if (!source.hasRemaining()) {
+						return length == 0 ? 0 : -1;
+					}
+					int count = Math.min(length, source.remaining());
+					source.get(bytes, offset, count);
+					return count;
+				}
+			};
+		}
+	}
+}
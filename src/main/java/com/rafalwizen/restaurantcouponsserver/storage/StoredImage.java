@@ -0,0 +1,33 @@
+package com.rafalwizen.restaurantcouponsserver.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * An object opened for reading from an {@link ImageStorage}.
+ */
+public interface StoredImage {
+
+	long length();
+
+	/**
+	 * Returns the file holding exactly this object, which the container may send directly, or
+	 * null if the object is not a file of its own.
+	 */
+	Path file();
+
+	/**
+	 * Writes {@code count} bytes starting at {@code position} to {@code target}.
+	 */
+	void transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+	InputStream openStream() throws IOException;
+
+	default byte[] readAllBytes() throws IOException {
+		try (InputStream in = openStream()) {
+			return in.readAllBytes();
+		}
+	}
+}
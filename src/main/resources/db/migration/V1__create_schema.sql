@@ -1,8 +1,5 @@
--- restaurant_coupon_db.sql
-
--- Create database (if not using Spring's auto-creation)
--- CREATE DATABASE IF NOT EXISTS restaurant_coupon_db;
--- USE restaurant_coupon_db;
+-- Baseline schema of restaurant_coupon_db.
+-- Databases created before migrations were introduced are baselined at this version.
 
 -- Admins Table
 CREATE TABLE IF NOT EXISTS admins (
@@ -25,6 +22,7 @@ CREATE TABLE IF NOT EXISTS coupons (
     valid_to TIMESTAMP NOT NULL,
     terms_and_conditions VARCHAR(1000),
     is_active BOOLEAN DEFAULT TRUE,
+    image_id BIGINT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
     );
@@ -53,12 +51,9 @@ CREATE TABLE IF NOT EXISTS images (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
     );
 
--- Add image_id column to coupons table if it doesn't exist
-ALTER TABLE coupons ADD COLUMN IF NOT EXISTS image_id BIGINT;
-
 -- Insert sample image for the "Happy Hour" coupon
 INSERT INTO images (file_name, file_path, file_type, file_size, description)
 VALUES ('beverage_splash.jpg', '/uploads/images/', 'image/jpeg', 245678, 'Refreshing drink with splash for Happy Hour promotion');
 
 -- Update the Happy Hour coupon to reference this image
-UPDATE coupons SET image_id = 1 WHERE name = 'Happy Hour';
\ No newline at end of file
+UPDATE coupons SET image_id = 1 WHERE name = 'Happy Hour';
@@ -0,0 +1,5 @@
+-- Supports the active-coupon queries in CouponRepository:
+--   is_active = TRUE AND valid_from <= :now AND valid_to >= :now [AND id = :id] ORDER BY id
+-- Equality column first, then valid_to as the range column (expired coupons, the bulk of
+-- historical rows, are skipped by the range), valid_from checked inside the index and id last.
+CREATE INDEX idx_coupons_active_validity ON coupons (is_active, valid_to, valid_from, id);
@@ -0,0 +1,13 @@
+-- Downscaled renditions of uploaded images, generated in the background after upload
+CREATE TABLE image_variants (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    image_id BIGINT NOT NULL,
+    width INT NOT NULL,
+    height INT NOT NULL,
+    file_path VARCHAR(255) NOT NULL,
+    file_type VARCHAR(100) NOT NULL,
+    file_size BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_image_variants_image FOREIGN KEY (image_id) REFERENCES images (id) ON DELETE CASCADE,
+    CONSTRAINT uk_image_variants_image_width_type UNIQUE (image_id, width, file_type)
+    );
@@ -0,0 +1,11 @@
+-- Append-only log of coupon changes backing the delta sync endpoint. The sequence is the sync
+-- version handed to clients: a sync reads the primary key range seq > :since, so its cost
+-- follows the number of changes rather than the size of the catalog.
+CREATE TABLE coupon_changes (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    coupon_id BIGINT NOT NULL,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+    );
+
+-- Coupons that predate the log count as changed once, so a sync from version 0 returns them all
+INSERT INTO coupon_changes (coupon_id) SELECT id FROM coupons ORDER BY id;
@@ -0,0 +1,6 @@
+-- Content-addressed image storage: uploads with identical content share one row and one file.
+-- content_hash is the hex SHA-256 of the file, NULL for images stored before this migration.
+-- ref_count counts the uploads sharing the row; the file is removed when it drops to zero.
+ALTER TABLE images ADD COLUMN content_hash VARCHAR(64);
+ALTER TABLE images ADD COLUMN ref_count INT NOT NULL DEFAULT 1;
+CREATE UNIQUE INDEX uk_images_content_hash ON images (content_hash);
@@ -0,0 +1,3 @@
+-- Pixel dimensions read from the image header at upload, NULL for images stored before
+ALTER TABLE images ADD COLUMN width INT;
+ALTER TABLE images ADD COLUMN height INT;
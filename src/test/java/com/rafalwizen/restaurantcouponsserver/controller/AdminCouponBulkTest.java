@@ -0,0 +1,128 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import com.rafalwizen.restaurantcouponsserver.dto.CouponChangesDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
+import com.rafalwizen.restaurantcouponsserver.exception.ResourceNotFoundException;
+import com.rafalwizen.restaurantcouponsserver.service.CouponService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(roles = "ADMIN")
+public class AdminCouponBulkTest {
+
+    private static final long HOUR = 3600000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CouponService couponService;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (Long id : createdIds) {
+            try {
+                couponService.deleteCoupon(id);
+            } catch (ResourceNotFoundException ex) {
+                // Deleted by the test
+            }
+        }
+        createdIds.clear();
+    }
+
+    @Test
+    void deactivateByIds_ShouldOnlyCountAndRecordCouponsThatChange() throws Exception {
+        Long first = create("Bulk deactivate one", true, null);
+        Long second = create("Bulk deactivate two", true, null);
+        Long inactive = create("Bulk already inactive", false, null);
+        long version = couponService.getChangesSince(0, 1000).getVersion();
+
+        bulk("{\"action\":\"DEACTIVATE\",\"ids\":[" + first + "," + second + "," + inactive + "]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.action").value("DEACTIVATE"))
+                .andExpect(jsonPath("$.data.affected").value(2));
+
+        CouponChangesDto changes = couponService.getChangesSince(version, 1000);
+        assertEquals(List.of(first, second), changes.getDeleted());
+        assertThrows(ResourceNotFoundException.class, () -> couponService.getCouponById(first));
+    }
+
+    @Test
+    void extendByNamePrefix_ShouldTreatWildcardsLiterallyAndTouchUpdatedAt() throws Exception {
+        Long matching = create("Bulk_50% spring", true, null);
+        Long wildcardOnly = create("BulkX50% spring", true, null);
+        Date validToBefore = couponService.getAdminCouponById(matching).getValidTo();
+        long validTo = System.currentTimeMillis() + 48 * HOUR;
+
+        bulk("{\"action\":\"EXTEND\",\"filter\":{\"namePrefix\":\"Bulk_50%\"},\"validTo\":" + validTo + "}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.affected").value(1));
+
+        CouponDetailDto extended = couponService.getCouponById(matching);
+        assertEquals(validTo, extended.getValidTo().getTime());
+        assertTrue(extended.getValidTo().after(validToBefore));
+        assertNotEquals(validTo, couponService.getAdminCouponById(wildcardOnly).getValidTo().getTime());
+    }
+
+    @Test
+    void deleteByImageAndWindow_ShouldDeleteMatchingCoupons() throws Exception {
+        Long withImage = create("Bulk delete with image", true, 1L);
+        Long withoutImage = create("Bulk delete without image", true, null);
+        long from = System.currentTimeMillis() - 2 * HOUR;
+        long to = System.currentTimeMillis() + 2 * HOUR;
+
+        bulk("{\"action\":\"DELETE\",\"filter\":{\"imageId\":1,\"validFrom\":" + from + ",\"validTo\":" + to + "}}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.affected").value(1));
+
+        assertThrows(ResourceNotFoundException.class, () -> couponService.getAdminCouponById(withImage));
+        assertNotNull(couponService.getAdminCouponById(withoutImage));
+    }
+
+    @Test
+    void bulk_WithoutSelection_ShouldReturnBadRequest() throws Exception {
+        bulk("{\"action\":\"DELETE\",\"filter\":{}}")
+                .andExpect(status().isBadRequest());
+        bulk("{\"action\":\"DELETE\",\"ids\":[1],\"filter\":{\"imageId\":1}}")
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions bulk(String body) throws Exception {
+        return mockMvc.perform(post("/api/admin/coupons/bulk").contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    private Long create(String name, boolean active, Long imageId) {
+        CouponCreateDto dto = new CouponCreateDto();
+        dto.setName(name);
+        dto.setDiscountValue(new BigDecimal("10.00"));
+        dto.setValidFrom(new Date(System.currentTimeMillis() - HOUR));
+        dto.setValidTo(new Date(System.currentTimeMillis() + HOUR));
+        dto.setIsActive(active);
+        dto.setImageId(imageId);
+        Long id = couponService.createCoupon(dto).getId();
+        createdIds.add(id);
+        return id;
+    }
+}
@@ -0,0 +1,193 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import com.rafalwizen.restaurantcouponsserver.dto.CouponChangesDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponImportReportDto;
+import com.rafalwizen.restaurantcouponsserver.service.CouponImportService;
+import com.rafalwizen.restaurantcouponsserver.service.CouponService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "app.coupons.import.batch-size=2")
+@AutoConfigureMockMvc
+@WithMockUser(roles = "ADMIN")
+public class AdminCouponImportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponImportService couponImportService;
+
+    private long versionBefore;
+
+    @BeforeEach
+    void setUp() {
+        versionBefore = couponService.getChangesSince(0, 1000).getVersion();
+    }
+
+    @AfterEach
+    void tearDown() {
+        importedCoupons().keySet().forEach(couponService::deleteCoupon);
+    }
+
+    @Test
+    void importCouponsJson_ShouldInsertValidRowsAndReportInvalidOnes() throws Exception {
+        String body = "["
+                + coupon("First imported", "5.00", "1") + ","
+                + "{\"name\":\"\",\"discountValue\":-1,\"validFrom\":\"2025-01-01T00:00:00Z\",\"validTo\":\"2030-01-01T00:00:00Z\"},"
+                + coupon("Unknown image", "5.00", "999999") + ","
+                + "{\"name\":\"Bad date\",\"discountValue\":5,\"validFrom\":\"soon\",\"validTo\":\"2030-01-01T00:00:00Z\"},"
+                + coupon("Second imported", "7.50", "null") + ","
+                + coupon("Third imported", "9.99", "null")
+                + "]";
+
+        mockMvc.perform(post("/api/admin/coupons/import").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.rows").value(6))
+                .andExpect(jsonPath("$.data.imported").value(3))
+                .andExpect(jsonPath("$.data.failed").value(3))
+                .andExpect(jsonPath("$.data.errors[0].row").value(2))
+                .andExpect(jsonPath("$.data.errors[0].message").value("Discount value must be positive; Name is required"))
+                .andExpect(jsonPath("$.data.errors[1].row").value(3))
+                .andExpect(jsonPath("$.data.errors[1].message").value("Image not found with id: 999999"))
+                .andExpect(jsonPath("$.data.errors[2].row").value(4))
+                .andExpect(jsonPath("$.data.errors[2].message").value("Invalid value for validFrom"));
+
+        Map<Long, CouponDetailDto> imported = importedCoupons();
+        assertEquals(3, imported.size());
+        CouponDetailDto first = imported.values().stream()
+                .filter(coupon -> coupon.getName().equals("First imported")).findFirst().orElseThrow();
+        assertEquals(1L, first.getImageId());
+        assertEquals(new BigDecimal("5.00"), first.getDiscountValue());
+    }
+
+    @Test
+    void importJson_WithConcurrentEdit_ShouldCommitEachBatchBeforeTheEdit() throws Exception {
+        CountDownLatch firstBatchWritten = new CountDownLatch(1);
+        CountDownLatch editDone = new CountDownLatch(1);
+        // The second part is only read after the first batch of two has been written
+        InputStream rest = new InputStream() {
+            private final InputStream delegate = new ByteArrayInputStream(
+                    (coupon("Late import", "3.00", "null") + "]").getBytes(StandardCharsets.UTF_8));
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                firstBatchWritten.countDown();
+                try {
+                    editDone.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    throw new InterruptedIOException();
+                }
+                return delegate.read(buffer, offset, length);
+            }
+        };
+        InputStream body = new SequenceInputStream(new ByteArrayInputStream(("["
+                + coupon("Early import", "1.00", "null") + "," + coupon("Second early import", "2.00", "null") + ",")
+                .getBytes(StandardCharsets.UTF_8)), rest);
+
+        CompletableFuture<CouponImportReportDto> running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return couponImportService.importJson(body);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertTrue(firstBatchWritten.await(5, TimeUnit.SECONDS));
+        CouponChangesDto beforeEdit = couponService.getChangesSince(versionBefore, 1000);
+        Long edited = couponService.createCoupon(single("Edited meanwhile")).getId();
+        editDone.countDown();
+        CouponImportReportDto report = running.get(5, TimeUnit.SECONDS);
+
+        // The batch was already visible, so the edit's later sequence value left no hole behind it
+        assertEquals(versionBefore + 2, beforeEdit.getVersion());
+        assertEquals(2, beforeEdit.getUpserts().size());
+        assertEquals(3, report.getImported());
+        Map<Long, CouponDetailDto> changed = importedCoupons();
+        assertEquals(4, changed.size());
+        assertTrue(changed.containsKey(edited));
+        assertEquals(versionBefore + 4, couponService.getChangesSince(versionBefore, 1000).getVersion());
+    }
+
+    @Test
+    void importCouponsCsv_ShouldParseQuotedFields() throws Exception {
+        String body = "name,description,discountValue,validFrom,validTo,imageId\r\n"
+                + "CSV coupon,\"Half off, \"\"all\"\" day\",12.50,2025-01-01T00:00:00Z,2030-01-01T00:00:00Z,\r\n"
+                + "Too few fields,5\r\n"
+                + "\r\n";
+
+        mockMvc.perform(post("/api/admin/coupons/import").contentType("text/csv").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.imported").value(1))
+                .andExpect(jsonPath("$.data.errors[0].row").value(2))
+                .andExpect(jsonPath("$.data.errors[0].message").value("Expected 6 fields but found 2"));
+
+        CouponDetailDto coupon = importedCoupons().values().iterator().next();
+        assertEquals("Half off, \"all\" day", coupon.getDescription());
+        assertNull(coupon.getImageId());
+    }
+
+    @Test
+    void importCouponsCsv_WithUnknownColumn_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/admin/coupons/import").contentType("text/csv").content("name,price\nA,1\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Map<Long, CouponDetailDto> importedCoupons() {
+        CouponChangesDto changes = couponService.getChangesSince(versionBefore, 1000);
+        return changes.getUpserts().stream()
+                .collect(Collectors.toMap(CouponDetailDto::getId, Function.identity()));
+    }
+
+    private static CouponCreateDto single(String name) {
+        CouponCreateDto dto = new CouponCreateDto();
+        dto.setName(name);
+        dto.setDiscountValue(new BigDecimal("4.00"));
+        dto.setValidFrom(new Date(System.currentTimeMillis() - 60000));
+        dto.setValidTo(new Date(System.currentTimeMillis() + 3600000));
+        return dto;
+    }
+
+    private static String coupon(String name, String discount, String imageId) {
+        return "{\"name\":\"" + name + "\",\"discountValue\":" + discount
+                + ",\"validFrom\":\"2025-01-01T00:00:00Z\",\"validTo\":\"2030-01-01T00:00:00Z\",\"imageId\":" + imageId + "}";
+    }
+}
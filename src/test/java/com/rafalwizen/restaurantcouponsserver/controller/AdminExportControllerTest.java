@@ -0,0 +1,139 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
+import com.rafalwizen.restaurantcouponsserver.service.CouponService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class AdminExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private ThreadPoolTaskExecutor applicationTaskExecutor;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        createdIds.forEach(couponService::deleteCoupon);
+        createdIds.clear();
+    }
+
+    @Test
+    void asyncSupport_ShouldRunStreamedExportsOnBoundedApplicationExecutor() {
+        // The other executor beans suppress Spring Boot's default, which must not leave MVC on
+        // a thread per request
+        assertSame(applicationTaskExecutor, ReflectionTestUtils.getField(handlerAdapter, "taskExecutor"));
+        assertEquals(100, applicationTaskExecutor.getQueueCapacity());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportCoupons_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        Long first = create("Exported coupon");
+        Long second = create("Another exported coupon");
+
+        MvcResult result = mockMvc.perform(get("/api/admin/export/coupons"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"coupons.ndjson\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<JsonNode> lines = parseLines(body);
+        List<Long> ids = lines.stream().map(line -> line.get("id").asLong()).toList();
+        assertTrue(ids.containsAll(List.of(first, second)));
+        assertEquals("Another exported coupon", lines.get(ids.indexOf(second)).get("name").asText());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportCoupons_WithGzip_ShouldWriteCompressedFile() throws Exception {
+        create("Compressed export coupon");
+
+        MvcResult plain = mockMvc.perform(get("/api/admin/export/coupons")).andReturn();
+        byte[] plainBody = mockMvc.perform(asyncDispatch(plain)).andReturn().getResponse().getContentAsByteArray();
+        MvcResult gzip = mockMvc.perform(get("/api/admin/export/coupons").param("gzip", "true")).andReturn();
+        byte[] gzipBody = mockMvc.perform(asyncDispatch(gzip))
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"coupons.ndjson.gz\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipBody))) {
+            assertEquals(new String(plainBody, StandardCharsets.UTF_8),
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void exportImages_WithoutAdminRole_ShouldBeForbidden() throws Exception {
+        mockMvc.perform(get("/api/admin/export/images"))
+                .andExpect(status().isForbidden());
+    }
+
+    private List<JsonNode> parseLines(byte[] body) throws Exception {
+        String content = new String(body, StandardCharsets.UTF_8);
+        assertTrue(content.endsWith("\n"));
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : content.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private Long create(String name) {
+        CouponCreateDto dto = new CouponCreateDto();
+        dto.setName(name);
+        dto.setDiscountValue(new BigDecimal("10.00"));
+        dto.setValidFrom(new Date(System.currentTimeMillis() - 60000));
+        dto.setValidTo(new Date(System.currentTimeMillis() + 3600000));
+        Long id = couponService.createCoupon(dto).getId();
+        createdIds.add(id);
+        return id;
+    }
+}
@@ -0,0 +1,60 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "app.security.login-throttle.per-username.capacity=2",
+        "app.security.login-throttle.per-address.capacity=100"
+})
+@AutoConfigureMockMvc
+public class AuthControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void login_WithValidCredentials_ShouldReturnTokenAndRole() throws Exception {
+        MvcResult result = mockMvc.perform(login("admin", "admin123", "10.0.0.1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.username").value("admin"))
+                .andExpect(jsonPath("$.data.role").value("ADMIN"))
+                .andExpect(jsonPath("$.data.token").isNotEmpty());
+    }
+
+    @Test
+    void login_WhenUsernameThrottled_ShouldReturn429() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            MvcResult result = mockMvc.perform(login("throttled", "wrong", "10.0.0.2")).andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isUnauthorized());
+        }
+
+        mockMvc.perform(login("throttled", "wrong", "10.0.0.3"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+    }
+
+    private static RequestBuilder login(String username, String password, String address) {
+        return post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}")
+                .with(request -> {
+                    request.setRemoteAddr(address);
+                    return request;
+                });
+    }
+}
@@ -0,0 +1,138 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponChangesDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponChangeRepository;
+import com.rafalwizen.restaurantcouponsserver.service.CouponCatalog;
+import com.rafalwizen.restaurantcouponsserver.service.CouponChangeStream;
+import com.rafalwizen.restaurantcouponsserver.service.CouponService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CouponChangeStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        createdIds.forEach(couponService::deleteCoupon);
+        createdIds.clear();
+    }
+
+    @Test
+    void streamCouponChanges_WithoutLastEventId_ShouldSendStartingVersionThenPushChanges() throws Exception {
+        long version = couponService.getChangesSince(0, 1000).getVersion();
+
+        MvcResult result = mockMvc.perform(get("/api/coupons/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = result.getResponse();
+        // Headers and the reconnect hint are written before the request returns, not by the stream
+        assertTrue(response.isCommitted());
+        assertTrue(response.getContentType().startsWith("text/event-stream"));
+        assertTrue(response.getContentAsString().startsWith("retry:5000\n"));
+        awaitContent(response, "id:" + version + "\nevent:changes\ndata:{\"upserted\":[],\"deleted\":[]");
+
+        Long id = create("Streamed coupon");
+
+        awaitContent(response, "id:" + (version + 1) + "\nevent:changes\ndata:{\"upserted\":[" + id + "],\"deleted\":[]");
+    }
+
+    @Test
+    void streamCouponChanges_WithLastEventId_ShouldReplayMissedChanges() throws Exception {
+        long version = couponService.getChangesSince(0, 1000).getVersion();
+        Long first = create("Missed coupon");
+        Long second = create("Another missed coupon");
+
+        MvcResult result = mockMvc.perform(get("/api/coupons/stream").header("Last-Event-ID", version))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        awaitContent(result.getResponse(),
+                "id:" + (version + 2) + "\nevent:changes\ndata:{\"upserted\":[" + first + "," + second + "]");
+    }
+
+    @Test
+    void streamCouponChanges_WithNegativeLastEventId_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/coupons/stream").header("Last-Event-ID", -1))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void broadcast_ToSubscriberThatFellBehind_ShouldCompleteItWithoutWaitingForIt() {
+        CouponService changes = mock(CouponService.class);
+        when(changes.getChangesSince(anyLong(), anyInt()))
+                .thenReturn(new CouponChangesDto(List.of(), List.of(), 0, false));
+        // Send tasks are held back, as if the client had stopped reading
+        List<Runnable> sends = new ArrayList<>();
+        CouponChangeStream stream = new CouponChangeStream(changes, mock(CouponChangeRepository.class),
+                mock(CouponCatalog.class), objectMapper, Runnable::run, sends::add, Duration.ofMinutes(1), 2);
+        SseEmitter emitter = stream.subscribe(null);
+
+        stream.heartbeat();
+        stream.heartbeat();
+
+        assertEquals(1, sends.size());
+        sends.remove(0).run();
+        assertThrows(IllegalStateException.class, () -> emitter.send("after completion"));
+    }
+
+    private static void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (response.getContentAsString().contains(expected)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("Stream did not contain " + expected + " but was: " + response.getContentAsString());
+    }
+
+    private Long create(String name) {
+        CouponCreateDto dto = new CouponCreateDto();
+        dto.setName(name);
+        dto.setDiscountValue(new BigDecimal("10.00"));
+        dto.setValidFrom(new Date(System.currentTimeMillis() - 60000));
+        dto.setValidTo(new Date(System.currentTimeMillis() + 3600000));
+        Long id = couponService.createCoupon(dto).getId();
+        createdIds.add(id);
+        return id;
+    }
+}
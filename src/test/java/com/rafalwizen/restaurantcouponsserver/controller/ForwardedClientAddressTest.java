@@ -0,0 +1,48 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the login throttle behind a real Tomcat with the forwarded header settings of the main
+ * configuration, which the test configuration otherwise shadows.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.security.login-throttle.per-address.capacity=1",
+        "app.security.login-throttle.per-username.capacity=100"
+})
+@TestPropertySource(locations = "file:src/main/resources/application.properties")
+public class ForwardedClientAddressTest {
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void login_FromTrustedProxy_ShouldThrottleByForwardedClientAddress() throws Exception {
+        assertEquals(401, login("203.0.113.1"));
+        assertEquals(429, login("203.0.113.1"));
+
+        // Same proxy connection, different client: its own bucket
+        assertEquals(401, login("203.0.113.2"));
+    }
+
+    private int login(String forwardedFor) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", forwardedFor)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"forwarded\",\"password\":\"wrong\"}"))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,272 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import com.rafalwizen.restaurantcouponsserver.dto.ImageCacheStatsDto;
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
+import com.rafalwizen.restaurantcouponsserver.service.ImageContentCache;
+import com.rafalwizen.restaurantcouponsserver.service.ImageService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.Ordered;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(roles = "ADMIN")
+public class ImageControllerTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ImageService imageService;
+
+	@Autowired
+	private ImageRepository imageRepository;
+
+	@Autowired
+	private ImageContentCache imageContentCache;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${file.upload-dir}")
+	private String uploadDir;
+
+	@Test
+	void uploadImage_WithSameContentTwice_ShouldShareOneFileUntilLastDelete() throws Exception {
+		byte[] content = png(12, 8);
+		String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+		Long first = upload("first.png", content);
+		Long second = upload("second.png", content);
+
+		assertEquals(first, second);
+		Image image = imageRepository.findById(first).orElseThrow();
+		assertEquals(hash, image.getContentHash());
+		assertEquals(2, image.getRefCount());
+		assertEquals("first.png", image.getFileName());
+		assertEquals(12, image.getWidth());
+		assertEquals(8, image.getHeight());
+		Path stored = Paths.get(uploadDir).resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+		assertArrayEquals(content, Files.readAllBytes(stored));
+
+		imageService.deleteImage(first);
+		assertTrue(Files.exists(stored));
+		assertEquals(1, imageRepository.findById(first).orElseThrow().getRefCount());
+
+		imageService.deleteImage(first);
+		assertFalse(Files.exists(stored));
+		assertTrue(imageRepository.findById(first).isEmpty());
+	}
+
+	@Test
+	void deleteImage_WhenTransactionRollsBack_ShouldKeepFile() throws Exception {
+		byte[] content = png(9, 7);
+		String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+		Long id = upload("rolled-back.png", content);
+		Path stored = Paths.get(uploadDir).resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			imageService.deleteImage(id);
+			status.setRollbackOnly();
+		});
+
+		assertTrue(imageRepository.findById(id).isPresent());
+		assertTrue(Files.exists(stored));
+		imageService.deleteImage(id);
+		assertFalse(Files.exists(stored));
+	}
+
+	@Test
+	void deleteImage_WhenSameContentIsUploadedBeforeFilesAreDeleted_ShouldKeepFile() throws Exception {
+		byte[] content = png(11, 6);
+		String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+		Long id = upload("deleted.png", content);
+		Path stored = Paths.get(uploadDir).resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+
+		AtomicReference<Long> reuploaded = new AtomicReference<>();
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			imageService.deleteImage(id);
+			// Runs after the row is gone but before the listener deletes its files
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public int getOrder() {
+					return Ordered.HIGHEST_PRECEDENCE;
+				}
+
+				@Override
+				public void afterCommit() {
+					reuploaded.set(CompletableFuture.supplyAsync(() -> {
+						try {
+							return imageService.storeImage(new ByteArrayInputStream(content), "reuploaded.png",
+									content.length, null).getId();
+						} catch (IOException ex) {
+							throw new UncheckedIOException(ex);
+						}
+					}).join());
+				}
+			});
+		});
+
+		assertNotEquals(id, reuploaded.get());
+		assertArrayEquals(content, Files.readAllBytes(stored));
+		imageService.deleteImage(reuploaded.get());
+		assertFalse(Files.exists(stored));
+	}
+
+	@Test
+	void getImagesByIds_ShouldKeepRequestOrderAndReportMissingIds() throws Exception {
+		Long uploaded = upload("batch.png", png(5, 5));
+		try {
+			mockMvc.perform(get("/api/images").param("ids", uploaded + ",999999,1"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.data.content[*].id", contains(uploaded.intValue(), 1)))
+					.andExpect(jsonPath("$.data.missing", contains(999999)));
+		} finally {
+			imageService.deleteImage(uploaded);
+		}
+	}
+
+	@Test
+	void uploadImageBody_ShouldDetectTypeFromContentAndRejectNonImages() throws Exception {
+		String body = mockMvc.perform(post("/api/images")
+						.param("fileName", "photo.gif")
+						.contentType(MediaType.APPLICATION_OCTET_STREAM)
+						.content(png(3, 2)))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.data.fileType").value(MediaType.IMAGE_PNG_VALUE))
+				.andExpect(jsonPath("$.data.width").value(3))
+				.andReturn().getResponse().getContentAsString();
+		imageService.deleteImage(JsonPath.parse(body).read("$.data.id", Long.class));
+
+		mockMvc.perform(post("/api/images")
+						.param("fileName", "script.png")
+						.contentType(MediaType.IMAGE_PNG)
+						.content("#!/bin/sh echo not an image".getBytes(StandardCharsets.UTF_8)))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void getImageContent_ShouldServeRepeatedRequestsFromCache() throws Exception {
+		byte[] content = png(4, 4);
+		Long id = upload("cached.png", content);
+		try {
+			ImageCacheStatsDto before = imageContentCache.stats();
+
+			mockMvc.perform(get("/api/images/{id}/content", id))
+					.andExpect(status().isOk())
+					.andExpect(content().bytes(content));
+			mockMvc.perform(get("/api/images/{id}/content", id).header("Range", "bytes=1-3"))
+					.andExpect(status().isPartialContent())
+					.andExpect(content().bytes(Arrays.copyOfRange(content, 1, 4)));
+
+			ImageCacheStatsDto after = imageContentCache.stats();
+			assertEquals(before.getMetadata().getHits() + 1, after.getMetadata().getHits());
+			assertEquals(before.getBodies().getHits() + 1, after.getBodies().getHits());
+		} finally {
+			imageService.deleteImage(id);
+		}
+
+		mockMvc.perform(get("/api/images/{id}/content", id))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void getImageContent_WithWidthBeforeVariantsExist_ShouldNotCacheFallbackForLong() throws Exception {
+		Long id = upload("fallback.png", png(4, 4));
+		try {
+			mockMvc.perform(get("/api/images/{id}/content", id).param("w", "2"))
+					.andExpect(status().isOk())
+					.andExpect(header().string("Cache-Control", containsString("no-cache")));
+			mockMvc.perform(get("/api/images/{id}/content", id))
+					.andExpect(status().isOk())
+					.andExpect(header().string("Cache-Control", containsString("max-age=86400")));
+		} finally {
+			imageService.deleteImage(id);
+		}
+	}
+
+	@Test
+	void getSignedImageContent_ShouldServeFromStorageAsImmutable() throws Exception {
+		byte[] content = png(6, 3);
+		String body = mockMvc.perform(multipart("/api/images")
+						.file(new MockMultipartFile("file", "signed.png", "image/png", content)))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString();
+		Long id = JsonPath.parse(body).read("$.data.id", Long.class);
+		String url = JsonPath.parse(body).read("$.data.url", String.class);
+		try {
+			assertTrue(url.startsWith("http://localhost/api/images/content/"));
+			String path = url.substring("http://localhost".length());
+
+			mockMvc.perform(get(path))
+					.andExpect(status().isOk())
+					.andExpect(content().contentType(MediaType.IMAGE_PNG))
+					.andExpect(content().bytes(content))
+					.andExpect(header().string("Cache-Control", containsString("immutable")));
+			mockMvc.perform(get(path.substring(0, path.length() - 2) + "AA"))
+					.andExpect(status().isNotFound());
+		} finally {
+			imageService.deleteImage(id);
+		}
+	}
+
+	private Long upload(String name, byte[] content) throws Exception {
+		String body = mockMvc.perform(multipart("/api/images")
+						.file(new MockMultipartFile("file", name, "image/png", content)))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString();
+		return JsonPath.parse(body).read("$.data.id", Long.class);
+	}
+
+	/**
+	 * Encodes a PNG whose pixels are unique to this call, so its content is never already stored.
+	 */
+	private static byte[] png(int width, int height) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(0, 0, (int) System.nanoTime());
+		image.setRGB(width - 1, height - 1, (int) (System.nanoTime() >>> 24));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
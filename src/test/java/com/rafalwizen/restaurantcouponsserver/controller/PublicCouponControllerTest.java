@@ -0,0 +1,227 @@
+package com.rafalwizen.restaurantcouponsserver.controller;
+
+import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponUpdateDto;
+import com.rafalwizen.restaurantcouponsserver.service.CouponService;
+import com.rafalwizen.restaurantcouponsserver.service.ImageUrlSigner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PublicCouponControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private ImageUrlSigner imageUrlSigner;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        createdIds.forEach(couponService::deleteCoupon);
+        createdIds.clear();
+    }
+
+    @Test
+    void getAllActiveCoupons_ShouldServeCachedBodyAndRefreshAfterChange() throws Exception {
+        Long first = create("Cached listing coupon");
+
+        mockMvc.perform(get("/api/coupons"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(jsonPath("$.data.content[*].id", hasItem(first.intValue())));
+
+        Long second = create("Coupon added after caching");
+
+        mockMvc.perform(get("/api/coupons"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[*].id", hasItem(second.intValue())));
+
+        couponService.deleteCoupon(second);
+        createdIds.remove(second);
+
+        mockMvc.perform(get("/api/coupons"))
+                .andExpect(jsonPath("$.data.content[*].id", not(hasItem(second.intValue()))));
+    }
+
+    @Test
+    void getCouponById_WithGzip_ShouldServeCompressedFormOfSameBody() throws Exception {
+        Long id = create("Gzip detail coupon");
+
+        MvcResult plain = mockMvc.perform(get("/api/coupons/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.data.name").value("Gzip detail coupon"))
+                .andReturn();
+        MvcResult gzip = mockMvc.perform(get("/api/coupons/{id}", id).header("Accept-Encoding", "br, gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        assertArrayEquals(plain.getResponse().getContentAsByteArray(),
+                gunzip(gzip.getResponse().getContentAsByteArray()));
+        assertEquals(gzip.getResponse().getContentAsByteArray().length, gzip.getResponse().getContentLength());
+    }
+
+    @Test
+    void getAllActiveCoupons_WithMatchingETag_ShouldReturnNotModifiedUntilCatalogChanges() throws Exception {
+        create("Conditional listing coupon");
+
+        String etag = mockMvc.perform(get("/api/coupons"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/coupons").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get("/api/coupons").param("sortBy", "name").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        create("Coupon invalidating the listing");
+
+        mockMvc.perform(get("/api/coupons").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    void getCouponById_WithMatchingETag_ShouldReturnNotModifiedUntilCouponUpdated() throws Exception {
+        Long id = create("Conditional detail coupon");
+
+        String etag = mockMvc.perform(get("/api/coupons/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        String gzipEtag = mockMvc.perform(get("/api/coupons/{id}", id).header("Accept-Encoding", "gzip"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertNotEquals(etag, gzipEtag);
+        mockMvc.perform(get("/api/coupons/{id}", id).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        CouponUpdateDto update = new CouponUpdateDto();
+        update.setName("Updated detail coupon");
+        // updatedAt has millisecond precision, make sure the update lands on a later one
+        Thread.sleep(5);
+        couponService.updateCoupon(id, update);
+
+        mockMvc.perform(get("/api/coupons/{id}", id).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.name").value("Updated detail coupon"));
+    }
+
+    @Test
+    void getCoupons_WithMatchingETag_ShouldReturnNewBodyOnceImageUrlsAreSignedAnew() throws Exception {
+        Long id = create("Signed image coupon");
+        String listEtag = mockMvc.perform(get("/api/coupons"))
+                .andReturn().getResponse().getHeader("ETag");
+        String detailEtag = mockMvc.perform(get("/api/coupons/{id}", id))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Past the next expiry window the embedded image URLs carry a new signature
+        ReflectionTestUtils.setField(imageUrlSigner, "clock", Clock.offset(Clock.systemUTC(), Duration.ofHours(2)));
+        try {
+            mockMvc.perform(get("/api/coupons").header("If-None-Match", listEtag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", not(listEtag)));
+            mockMvc.perform(get("/api/coupons/{id}", id).header("If-None-Match", detailEtag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", not(detailEtag)));
+        } finally {
+            ReflectionTestUtils.setField(imageUrlSigner, "clock", Clock.systemUTC());
+        }
+    }
+
+    @Test
+    void getCouponChanges_ShouldReturnUpsertsAndTombstonesSinceVersion() throws Exception {
+        long since = couponService.getChangesSince(0, 1000).getVersion();
+        Long kept = create("Synced coupon");
+        Long deactivated = create("Deactivated coupon");
+        Long deleted = create("Deleted coupon");
+
+        CouponUpdateDto deactivate = new CouponUpdateDto();
+        deactivate.setIsActive(false);
+        couponService.updateCoupon(deactivated, deactivate);
+        couponService.deleteCoupon(deleted);
+        createdIds.remove(deleted);
+
+        mockMvc.perform(get("/api/coupons/changes").param("since", String.valueOf(since)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.upserts[*].id", contains(kept.intValue())))
+                .andExpect(jsonPath("$.data.deleted", contains(deactivated.intValue(), deleted.intValue())))
+                .andExpect(jsonPath("$.data.version").value(since + 5))
+                .andExpect(jsonPath("$.data.hasMore").value(false));
+
+        mockMvc.perform(get("/api/coupons/changes").param("since", String.valueOf(since + 5)))
+                .andExpect(jsonPath("$.data.upserts", hasSize(0)))
+                .andExpect(jsonPath("$.data.deleted", hasSize(0)));
+    }
+
+    @Test
+    void getCouponsByIds_ShouldKeepRequestOrderAndReportMissingIds() throws Exception {
+        Long first = create("Batch coupon one");
+        Long second = create("Batch coupon two");
+
+        mockMvc.perform(get("/api/coupons").param("ids", second + "," + Long.MAX_VALUE + "," + first + "," + second))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[*].id", contains(second.intValue(), first.intValue())))
+                .andExpect(jsonPath("$.data.content[1].name").value("Batch coupon one"))
+                .andExpect(jsonPath("$.data.missing", contains(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void getCouponById_WithInactiveCoupon_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/api/coupons/{id}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    private Long create(String name) {
+        CouponCreateDto dto = new CouponCreateDto();
+        dto.setName(name);
+        dto.setDiscountValue(new BigDecimal("10.00"));
+        dto.setValidFrom(new Date(System.currentTimeMillis() - 60000));
+        dto.setValidTo(new Date(System.currentTimeMillis() + 3600000));
+        CouponDetailDto created = couponService.createCoupon(dto);
+        createdIds.add(created.getId());
+        return created.getId();
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
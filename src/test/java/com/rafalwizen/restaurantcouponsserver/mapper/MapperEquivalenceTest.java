@@ -0,0 +1,132 @@
+package com.rafalwizen.restaurantcouponsserver.mapper;
+
+import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CouponSummaryDto;
+import com.rafalwizen.restaurantcouponsserver.dto.ImageDto;
+import com.rafalwizen.restaurantcouponsserver.dto.ImageResponseDto;
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponSummaryView;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The generated mappers must produce exactly what {@link BeanUtils#copyProperties} produced
+ * before them, for fully populated sources as well as for sources with null properties.
+ */
+public class MapperEquivalenceTest {
+
+    private final CouponMapper couponMapper = new CouponMapperImpl();
+    private final ImageMapper imageMapper = new ImageMapperImpl();
+
+    @Test
+    void toDetailDto_ShouldMatchBeanUtils() {
+        for (Coupon coupon : new Coupon[]{fullCoupon(), new Coupon()}) {
+            CouponDetailDto expected = new CouponDetailDto();
+            BeanUtils.copyProperties(coupon, expected);
+
+            assertEquals(expected, couponMapper.toDetailDto(coupon));
+        }
+    }
+
+    @Test
+    void toSummaryDto_ShouldMatchBeanUtils() {
+        for (Coupon coupon : new Coupon[]{fullCoupon(), new Coupon()}) {
+            CouponSummaryDto expected = new CouponSummaryDto();
+            BeanUtils.copyProperties(coupon, expected);
+
+            assertEquals(expected, couponMapper.toSummaryDto(coupon));
+        }
+    }
+
+    @Test
+    void toSummaryDto_FromView_ShouldMatchEntityMapping() {
+        Coupon coupon = fullCoupon();
+        CouponSummaryView view = new CouponSummaryView(coupon.getId(), coupon.getName(),
+                coupon.getDiscountValue(), coupon.getImageId());
+
+        assertEquals(couponMapper.toSummaryDto(coupon), couponMapper.toSummaryDto(view));
+    }
+
+    @Test
+    void toEntity_ShouldMatchBeanUtils() {
+        CouponCreateDto full = new CouponCreateDto("Lunch Combo", "Free dessert", new BigDecimal("12.50"),
+                new Date(1_700_000_000_000L), new Date(1_800_000_000_000L), "Weekdays only", false, 7L);
+        CouponCreateDto sparse = new CouponCreateDto();
+        sparse.setIsActive(null);
+
+        for (CouponCreateDto dto : new CouponCreateDto[]{full, sparse}) {
+            Coupon expected = new Coupon();
+            BeanUtils.copyProperties(dto, expected);
+
+            assertEquals(expected, couponMapper.toEntity(dto));
+        }
+    }
+
+    @Test
+    void copy_ShouldMatchBeanUtils() {
+        for (Coupon coupon : new Coupon[]{fullCoupon(), new Coupon()}) {
+            Coupon expected = new Coupon();
+            BeanUtils.copyProperties(coupon, expected);
+
+            Coupon copy = couponMapper.copy(coupon);
+            assertNotSame(coupon, copy);
+            assertEquals(expected, copy);
+        }
+    }
+
+    @Test
+    void toResponseDto_ShouldMatchBeanUtils() {
+        for (Image image : new Image[]{fullImage(), new Image()}) {
+            ImageResponseDto expected = new ImageResponseDto();
+            BeanUtils.copyProperties(image, expected);
+
+            assertEquals(expected, imageMapper.toResponseDto(image));
+        }
+    }
+
+    @Test
+    void toDto_ShouldMatchBeanUtils() {
+        for (Image image : new Image[]{fullImage(), new Image()}) {
+            ImageDto expected = new ImageDto();
+            BeanUtils.copyProperties(image, expected);
+
+            assertEquals(expected, imageMapper.toDto(image));
+        }
+    }
+
+    private static Coupon fullCoupon() {
+        Coupon coupon = new Coupon();
+        coupon.setId(3L);
+        coupon.setName("Happy Hour");
+        coupon.setDescription("20% off on beverages");
+        coupon.setDiscountValue(new BigDecimal("20.00"));
+        coupon.setValidFrom(new Date(1_700_000_000_000L));
+        coupon.setValidTo(new Date(1_800_000_000_000L));
+        coupon.setTermsAndConditions("Dine-in only");
+        coupon.setIsActive(false);
+        coupon.setImageId(1L);
+        coupon.setCreatedAt(new Date(1_690_000_000_000L));
+        coupon.setUpdatedAt(new Date(1_695_000_000_000L));
+        return coupon;
+    }
+
+    private static Image fullImage() {
+        Image image = new Image();
+        image.setId(1L);
+        image.setFileName("beverage_splash.jpg");
+        image.setFilePath("0b9c2625.jpg");
+        image.setFileType("image/jpeg");
+        image.setFileSize(245678L);
+        image.setDescription("Refreshing drink");
+        image.setCreatedAt(new Date(1_690_000_000_000L));
+        image.setUpdatedAt(new Date(1_695_000_000_000L));
+        return image;
+    }
+}
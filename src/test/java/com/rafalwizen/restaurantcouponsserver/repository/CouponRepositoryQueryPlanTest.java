@@ -0,0 +1,162 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the active-coupon queries against losing the composite validity index. The SQL that
+ * Hibernate actually generates is captured and run through EXPLAIN, so changes to the entity
+ * or the JPQL are checked as well as the migration.
+ * <p>
+ * The index only filters: the range on {@code valid_to} keeps expired history out of the scan,
+ * and ordered listings sort the remaining live rows. That sort is expected and not checked here.
+ * <p>
+ * ANALYZE commits on H2, so the sample rows are removed explicitly instead of by a rolled back
+ * test transaction.
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.rafalwizen.restaurantcouponsserver.repository.CouponRepositoryQueryPlanTest$CapturingStatementInspector")
+public class CouponRepositoryQueryPlanTest {
+
+    private static final String VALIDITY_INDEX = "idx_coupons_active_validity";
+    private static final String SAMPLE_PREFIX = "Query plan sample ";
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Date now = new Date();
+
+    @BeforeEach
+    void setUp() {
+        // Mostly expired history with a few live coupons, like a long-running production table
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            boolean live = i % 50 == 0;
+            long validTo = live ? now.getTime() + 86400000L : now.getTime() - 86400000L * (i + 1);
+            rows.add(new Object[]{SAMPLE_PREFIX + i, "10.00",
+                    new Timestamp(validTo - 86400000L * 30), new Timestamp(validTo), i % 7 != 0});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO coupons (name, discount_value, valid_from, valid_to, is_active) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("ANALYZE");
+        CapturingStatementInspector.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM coupons WHERE name LIKE ?", SAMPLE_PREFIX + "%");
+    }
+
+    @Test
+    void findAllActiveCoupons_ShouldUseValidityIndex() {
+        couponRepository.findAllActiveCoupons(now);
+
+        assertUsesValidityIndex(CapturingStatementInspector.lastSelect());
+    }
+
+    @Test
+    void findActiveSummaries_ShouldUseValidityIndexForContentAndCount() {
+        couponRepository.findActiveSummaries(now, PageRequest.of(1, 5, Sort.by("id")));
+
+        List<String> statements = CapturingStatementInspector.selects();
+        assertFalse(statements.isEmpty());
+        statements.forEach(this::assertUsesValidityIndex);
+    }
+
+    @Test
+    void findActiveById_ShouldUseAnIndex() {
+        couponRepository.findActiveById(1L, now);
+
+        String plan = explain(CapturingStatementInspector.lastSelect());
+        // A primary key lookup beats the validity index here, either is fine as long as it is not a scan
+        assertTrue(plan.contains(VALIDITY_INDEX) || plan.contains("primary_key"), plan);
+    }
+
+    private void assertUsesValidityIndex(String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains(VALIDITY_INDEX), "Expected " + VALIDITY_INDEX + " in plan:\n" + plan);
+    }
+
+    private String explain(String sql) {
+        assertNotNull(sql, "No statement was captured");
+        return jdbcTemplate.execute((java.sql.Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameterCount = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameterCount; i++) {
+                    bindSample(statement, i, sql);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    StringBuilder plan = new StringBuilder();
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                    return plan.toString().toLowerCase();
+                }
+            }
+        });
+    }
+
+    private void bindSample(PreparedStatement statement, int index, String sql) throws java.sql.SQLException {
+        String beforeParameter = nthParameterPrefix(sql, index).toLowerCase();
+        if (beforeParameter.endsWith("offset ") || beforeParameter.endsWith("first ")
+                || beforeParameter.endsWith("limit ") || beforeParameter.endsWith("c1_0.id=")) {
+            statement.setLong(index, 1);
+        } else {
+            statement.setTimestamp(index, new Timestamp(now.getTime()));
+        }
+    }
+
+    private static String nthParameterPrefix(String sql, int index) {
+        int position = -1;
+        for (int i = 0; i < index; i++) {
+            position = sql.indexOf('?', position + 1);
+        }
+        return sql.substring(0, position);
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        private static final List<String> STATEMENTS = new ArrayList<>();
+
+        @Override
+        public synchronized String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+
+        static synchronized void clear() {
+            STATEMENTS.clear();
+        }
+
+        static synchronized List<String> selects() {
+            return STATEMENTS.stream()
+                    .filter(sql -> sql.toLowerCase().startsWith("select"))
+                    .toList();
+        }
+
+        static String lastSelect() {
+            List<String> selects = selects();
+            return selects.isEmpty() ? null : selects.get(selects.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.rafalwizen.restaurantcouponsserver.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class CouponSeekPaginationTest {
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Timestamp from = new Timestamp(System.currentTimeMillis());
+        Timestamp to = new Timestamp(from.getTime() + 86400000L);
+        Timestamp created = new Timestamp(from.getTime() - 3600000L);
+        for (int i = 0; i < 5; i++) {
+            // Rows written by hand or before auditing existed have no creation time
+            jdbcTemplate.update("INSERT INTO coupons (name, discount_value, valid_from, valid_to, is_active, created_at) "
+                    + "VALUES (?, 10.00, ?, ?, TRUE, ?)", "Seek sample " + i, from, to, i % 2 == 0 ? null : created);
+        }
+    }
+
+    @Test
+    void findSummariesAfter_WithNullSortKeys_ShouldVisitEveryRowOnce() {
+        long total = couponRepository.count();
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<Long> visited = new ArrayList<>();
+            Object afterKey = null;
+            Long afterId = null;
+            List<CouponRepositoryCustom.SeekRow> page;
+            do {
+                page = couponRepository.findSummariesAfter("createdAt", direction, afterKey, afterId, 2);
+                for (CouponRepositoryCustom.SeekRow row : page) {
+                    visited.add(row.summary().id());
+                    afterKey = row.sortKey();
+                    afterId = row.summary().id();
+                }
+            } while (!page.isEmpty());
+
+            assertEquals(total, visited.size(), direction.name());
+            assertEquals(total, visited.stream().distinct().count(), direction.name());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.rafalwizen.restaurantcouponsserver.security;
+
+import com.rafalwizen.restaurantcouponsserver.exception.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginThrottleTest {
+
+    @Test
+    void acquire_WhenUsernameExhausted_ShouldRejectWithRetryAfter() {
+        // Arrange
+        LoginThrottle throttle = new LoginThrottle(100, Duration.ofMinutes(1), 2, Duration.ofMinutes(1));
+        throttle.acquire("10.0.0.1", "admin");
+        throttle.acquire("10.0.0.2", "ADMIN");
+
+        // Act
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+                () -> throttle.acquire("10.0.0.3", "admin"));
+
+        // Assert
+        assertTrue(exception.getRetryAfterSeconds() >= 1 && exception.getRetryAfterSeconds() <= 30);
+        assertDoesNotThrow(() -> throttle.acquire("10.0.0.3", "someone-else"));
+    }
+
+    @Test
+    void acquire_WhenAddressExhausted_ShouldRejectAnyUsername() {
+        // Arrange
+        LoginThrottle throttle = new LoginThrottle(2, Duration.ofMinutes(1), 100, Duration.ofMinutes(1));
+        throttle.acquire("10.0.0.1", "a");
+        throttle.acquire("10.0.0.1", "b");
+
+        // Act & Assert
+        assertThrows(TooManyRequestsException.class, () -> throttle.acquire("10.0.0.1", "c"));
+        assertDoesNotThrow(() -> throttle.acquire("10.0.0.2", "c"));
+    }
+
+    @Test
+    void evictIdleBuckets_ShouldDropRefilledBuckets() throws InterruptedException {
+        // Arrange
+        LoginThrottle throttle = new LoginThrottle(1, Duration.ofMillis(10), 1, Duration.ofMillis(10));
+        throttle.acquire("10.0.0.1", "admin");
+        Thread.sleep(20);
+
+        // Act
+        throttle.evictIdleBuckets();
+
+        // Assert
+        assertEquals(0, throttle.trackedKeys());
+    }
+}
@@ -0,0 +1,129 @@
+package com.rafalwizen.restaurantcouponsserver.security.jwt;
+
+import com.rafalwizen.restaurantcouponsserver.security.AdminPrincipalCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JwtAuthenticationFilterTest {
+
+    @Mock
+    private JwtTokenProvider tokenProvider;
+
+    @Mock
+    private AdminPrincipalCache principalCache;
+
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new JwtAuthenticationFilter(List.of("/api/coupons/**", "/api/images/*/content"));
+        ReflectionTestUtils.setField(filter, "tokenProvider", tokenProvider);
+        ReflectionTestUtils.setField(filter, "principalCache", principalCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_OnPublicRead_ShouldSkipTokenProcessing() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/coupons/1");
+        request.setServletPath("/api/coupons/1");
+        request.addHeader("Authorization", "Bearer token");
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(tokenProvider, principalCache);
+    }
+
+    @Test
+    void doFilter_OnWriteToPublicPath_ShouldAuthenticate() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/api/images/1");
+        request.setServletPath("/api/images/1");
+        request.addHeader("Authorization", "Bearer token");
+        Claims claims = Jwts.claims().setSubject("admin");
+        when(tokenProvider.parseToken("token")).thenReturn(claims);
+        when(tokenProvider.getRoles(claims)).thenReturn(List.of("ROLE_ADMIN"));
+        when(principalCache.get("admin"))
+                .thenReturn(new User("admin", "", AuthorityUtils.createAuthorityList("ROLE_ADMIN")));
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("admin", authentication.getName());
+        assertEquals(List.of("ROLE_ADMIN"), AuthorityUtils.authorityListToSet(authentication.getAuthorities())
+                .stream().toList());
+    }
+
+    @Test
+    void doFilter_WithTokenOfDemotedAdmin_ShouldNotAuthenticate() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/api/images/1");
+        request.setServletPath("/api/images/1");
+        request.addHeader("Authorization", "Bearer token");
+        Claims claims = Jwts.claims().setSubject("admin");
+        when(tokenProvider.parseToken("token")).thenReturn(claims);
+        when(tokenProvider.getRoles(claims)).thenReturn(List.of("ROLE_ADMIN"));
+        when(principalCache.get("admin"))
+                .thenReturn(new User("admin", "", AuthorityUtils.createAuthorityList("ROLE_USER")));
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void doFilter_WithTokenOfRemovedAdmin_ShouldNotAuthenticate() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/api/images/1");
+        request.setServletPath("/api/images/1");
+        request.addHeader("Authorization", "Bearer token");
+        Claims claims = Jwts.claims().setSubject("removed");
+        when(tokenProvider.parseToken("token")).thenReturn(claims);
+        when(principalCache.get("removed")).thenThrow(new UsernameNotFoundException("removed"));
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
@@ -0,0 +1,68 @@
+package com.rafalwizen.restaurantcouponsserver.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtTokenProviderTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(
+            "test-secret-test-secret-test-secret-test-secret-test-secret-test-secret".getBytes());
+
+    private JwtTokenProvider tokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider(SECRET, 3600000);
+    }
+
+    @Test
+    void parseToken_ShouldReturnSubjectAndRolesFromSingleParse() {
+        // Arrange
+        User admin = new User("admin", "", AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+        String token = tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+
+        // Act
+        Claims claims = tokenProvider.parseToken(token);
+
+        // Assert
+        assertEquals("admin", claims.getSubject());
+        assertEquals(List.of("ROLE_ADMIN"), tokenProvider.getRoles(claims));
+    }
+
+    @Test
+    void parseToken_WithForeignSignature_ShouldThrow() {
+        // Arrange
+        JwtTokenProvider otherIssuer = new JwtTokenProvider(Base64.getEncoder().encodeToString(
+                "other-secret-other-secret-other-secret-other-secret-other-secret-other".getBytes()), 3600000);
+        User admin = new User("admin", "", AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+        String token = otherIssuer.generateToken(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+
+        // Act & Assert
+        assertThrows(JwtException.class, () -> tokenProvider.parseToken(token));
+        assertFalse(tokenProvider.validateToken(token));
+    }
+
+    @Test
+    void parseToken_WithExpiredToken_ShouldThrow() {
+        // Arrange
+        JwtTokenProvider expiredIssuer = new JwtTokenProvider(SECRET, -1000);
+        User admin = new User("admin", "", AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+        String token = expiredIssuer.generateToken(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+
+        // Act & Assert
+        assertThrows(JwtException.class, () -> tokenProvider.parseToken(token));
+    }
+}
@@ -0,0 +1,156 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.mapper.CouponMapperImpl;
+import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CouponCatalogTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    private CouponCatalog couponCatalog;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        couponCatalog = new CouponCatalog(couponRepository, new CouponMapperImpl(), 300000);
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    void findActive_ShouldServeSortedPagesFromSnapshot() {
+        // Arrange
+        when(couponRepository.findAllActiveCoupons(any(Date.class))).thenReturn(Arrays.asList(
+                coupon(3L, "Cheap", "5.00", now + 60000),
+                coupon(1L, "Large", "50.00", now + 60000),
+                coupon(2L, "Medium", "20.00", now + 60000)));
+
+        // Act
+        Page<Coupon> byId = couponCatalog.findActive(PageRequest.of(0, 2)).orElseThrow();
+        Page<Coupon> byDiscount = couponCatalog.findActive(
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "discountValue"))).orElseThrow();
+
+        // Assert
+        assertEquals(3, byId.getTotalElements());
+        assertEquals(Arrays.asList(1L, 2L), byId.getContent().stream().map(Coupon::getId).toList());
+        assertEquals(Arrays.asList(1L, 2L, 3L), byDiscount.getContent().stream().map(Coupon::getId).toList());
+
+        verify(couponRepository, times(1)).findAllActiveCoupons(any(Date.class));
+    }
+
+    @Test
+    void findActive_WithUnknownSortProperty_ShouldReturnEmpty() {
+        // Arrange
+        when(couponRepository.findAllActiveCoupons(any(Date.class))).thenReturn(Arrays.asList(
+                coupon(1L, "Coupon", "10.00", now + 60000)));
+
+        // Act
+        Optional<Page<Coupon>> result = couponCatalog.findActive(PageRequest.of(0, 10, Sort.by("description")));
+
+        // Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void findActiveAfter_ShouldSeekPastCursorPosition() {
+        // Arrange
+        when(couponRepository.findAllActiveCoupons(any(Date.class))).thenReturn(Arrays.asList(
+                coupon(1L, "A", "20.00", now + 60000),
+                coupon(2L, "B", "10.00", now + 60000),
+                coupon(3L, "C", "20.00", now + 60000),
+                coupon(4L, "D", "30.00", now + 60000)));
+        Sort sort = CouponCursor.sortFor(CouponSortField.DISCOUNT_VALUE, Sort.Direction.ASC);
+        Coupon lastSeen = coupon(1L, "A", "20.00", now + 60000);
+
+        // Act
+        String token = CouponCursor.after(lastSeen, CouponSortField.DISCOUNT_VALUE, Sort.Direction.ASC).encode();
+        Coupon position = CouponCursor.decode(token, CouponSortField.DISCOUNT_VALUE, Sort.Direction.ASC).toProbe();
+        List<Coupon> slice = couponCatalog.findActiveAfter(sort, position, 10).orElseThrow();
+
+        // Assert
+        assertEquals(Arrays.asList(3L, 4L), slice.stream().map(Coupon::getId).toList());
+    }
+
+    @Test
+    void refresh_ShouldExpireSnapshotAtNearestValidityBoundary() {
+        // Arrange
+        when(couponRepository.findAllActiveCoupons(any(Date.class))).thenReturn(Arrays.asList(
+                coupon(1L, "Coupon", "10.00", now + 60000)));
+        when(couponRepository.findNextActivation(any(Date.class))).thenReturn(new Date(now + 30000));
+
+        // Act
+        CouponCatalogSnapshot snapshot = couponCatalog.refresh();
+
+        // Assert
+        assertEquals(now + 30000, snapshot.getValidUntil());
+        assertFalse(snapshot.isExpired(now));
+        assertTrue(snapshot.isExpired(now + 30000));
+    }
+
+    @Test
+    void onCouponChanged_ShouldSwapInNewSnapshot() {
+        // Arrange
+        when(couponRepository.findAllActiveCoupons(any(Date.class)))
+                .thenReturn(Arrays.asList(coupon(1L, "Coupon", "10.00", now + 60000)))
+                .thenReturn(Arrays.asList());
+        CouponCatalogSnapshot before = couponCatalog.current();
+
+        // Act
+        couponCatalog.onCouponChanged(new CouponCatalogChangedEvent(1L));
+
+        // Assert
+        CouponCatalogSnapshot after = couponCatalog.current();
+        assertNotSame(before, after);
+        assertTrue(after.getVersion() > before.getVersion());
+        assertTrue(couponCatalog.findActiveById(1L).isEmpty());
+    }
+
+    @Test
+    void refresh_WithUnchangedCoupons_ShouldKeepVersion() {
+        // Arrange
+        when(couponRepository.findAllActiveCoupons(any(Date.class)))
+                .thenReturn(Arrays.asList(coupon(1L, "Coupon", "10.00", now + 60000)))
+                .thenReturn(Arrays.asList(coupon(1L, "Coupon", "10.00", now + 60000)))
+                .thenReturn(Arrays.asList(coupon(1L, "Coupon", "15.00", now + 60000)));
+
+        // Act
+        CouponCatalogSnapshot first = couponCatalog.refresh();
+        CouponCatalogSnapshot unchanged = couponCatalog.refresh();
+        CouponCatalogSnapshot changed = couponCatalog.refresh();
+
+        // Assert
+        assertEquals(first.getVersion(), unchanged.getVersion());
+        assertNotEquals(first.getVersion(), changed.getVersion());
+    }
+
+    private Coupon coupon(Long id, String name, String discount, long validTo) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setName(name);
+        coupon.setDiscountValue(new BigDecimal(discount));
+        coupon.setValidFrom(new Date(now - 60000));
+        coupon.setValidTo(new Date(validTo));
+        coupon.setIsActive(true);
+        return coupon;
+    }
+}
@@ -1,31 +1,45 @@
 package com.rafalwizen.restaurantcouponsserver.service;
 
+import com.rafalwizen.restaurantcouponsserver.dto.CouponChangesDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponCreateDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponDetailDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponUpdateDto;
 import com.rafalwizen.restaurantcouponsserver.dto.CouponSummaryDto;
+import com.rafalwizen.restaurantcouponsserver.dto.CursorSliceDto;
+import com.rafalwizen.restaurantcouponsserver.exception.BadRequestException;
 import com.rafalwizen.restaurantcouponsserver.exception.ResourceNotFoundException;
+import com.rafalwizen.restaurantcouponsserver.mapper.CouponMapper;
+import com.rafalwizen.restaurantcouponsserver.mapper.CouponMapperImpl;
 import com.rafalwizen.restaurantcouponsserver.model.Coupon;
+import com.rafalwizen.restaurantcouponsserver.model.CouponChange;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponChangeRepository;
 import com.rafalwizen.restaurantcouponsserver.repository.CouponRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.CouponSummaryView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +48,21 @@ public class CouponServiceTest {
     @Mock
     private CouponRepository couponRepository;
 
+    @Mock
+    private CouponChangeRepository couponChangeRepository;
+
+    @Mock
+    private CouponCatalog couponCatalog;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private CouponMapper couponMapper = new CouponMapperImpl();
+
+    @Spy
+    private ImageUrlResolver imageUrlResolver = new ImageUrlResolver("https://cdn.example.com/");
+
     @InjectMocks
     private CouponService couponService;
 
@@ -77,7 +106,7 @@ public class CouponServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Coupon> couponPage = new PageImpl<>(Arrays.asList(coupon));
 
-        when(couponRepository.findAllActiveCoupons(any(Date.class), eq(pageable))).thenReturn(couponPage);
+        when(couponCatalog.findActive(eq(pageable))).thenReturn(Optional.of(couponPage));
 
         // Act
         Page<CouponSummaryDto> result = couponService.getAllActiveCoupons(pageable);
@@ -89,13 +118,124 @@ public class CouponServiceTest {
         assertEquals(coupon.getName(), result.getContent().get(0).getName());
         assertEquals(coupon.getDiscountValue(), result.getContent().get(0).getDiscountValue());
 
-        verify(couponRepository, times(1)).findAllActiveCoupons(any(Date.class), eq(pageable));
+        verify(couponCatalog, times(1)).findActive(eq(pageable));
+        verifyNoInteractions(couponRepository);
+    }
+
+    @Test
+    void getAllActiveCoupons_WithSortUnsupportedByCatalog_ShouldQuerySummaryProjection() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 10);
+        Page<CouponSummaryView> summaryPage = new PageImpl<>(Arrays.asList(
+                new CouponSummaryView(1L, "Test Coupon", new BigDecimal("10.00"), null)));
+
+        when(couponCatalog.findActive(eq(pageable))).thenReturn(Optional.empty());
+        when(couponRepository.findActiveSummaries(any(Date.class), eq(pageable))).thenReturn(summaryPage);
+
+        // Act
+        Page<CouponSummaryDto> result = couponService.getAllActiveCoupons(pageable);
+
+        // Assert
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Test Coupon", result.getContent().get(0).getName());
+        verify(couponRepository, times(1)).findActiveSummaries(any(Date.class), eq(pageable));
+    }
+
+    @Test
+    void getActiveCouponsAfter_WithMoreResults_ShouldReturnNextCursor() {
+        // Arrange
+        Coupon second = new Coupon();
+        second.setId(2L);
+        second.setName("Second Coupon");
+        second.setDiscountValue(new BigDecimal("5.00"));
+
+        when(couponCatalog.findActiveAfter(any(Sort.class), isNull(), eq(2)))
+                .thenReturn(Optional.of(Arrays.asList(coupon, second)));
+
+        // Act
+        CursorSliceDto<CouponSummaryDto> result = couponService.getActiveCouponsAfter(null, 1, "id", Sort.Direction.ASC);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.isHasNext());
+        CouponCursor cursor = CouponCursor.decode(result.getNextCursor(), CouponSortField.ID, Sort.Direction.ASC);
+        assertEquals(coupon.getId(), cursor.id());
+        verifyNoInteractions(couponRepository);
+    }
+
+    @Test
+    void getActiveCouponsAfter_WithCursorForOtherSort_ShouldThrowBadRequestException() {
+        // Arrange
+        String cursor = CouponCursor.after(coupon, CouponSortField.NAME, Sort.Direction.ASC).encode();
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> {
+            couponService.getActiveCouponsAfter(cursor, 10, "id", Sort.Direction.ASC);
+        });
+    }
+
+    @Test
+    void getChangesSince_ShouldReportCurrentStateOfEachChangedCouponOnce() {
+        // Arrange
+        Coupon deactivated = new Coupon();
+        deactivated.setId(2L);
+        deactivated.setIsActive(false);
+        long settled = now.getTime() - CouponService.CHANGE_SETTLE_MS - 1000;
+
+        when(couponChangeRepository.findBySeqGreaterThanOrderBySeqAsc(eq(10L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(
+                        change(11L, 1L, settled),
+                        change(12L, 2L, settled),
+                        // A rolled back insert left a hole long ago, it is safe to step over
+                        change(14L, 3L, settled),
+                        change(15L, 1L, now.getTime()),
+                        // A recent hole may still be filled by an uncommitted change
+                        change(17L, 4L, now.getTime())));
+        when(couponRepository.findAllById(any())).thenReturn(Arrays.asList(coupon, deactivated));
+
+        // Act
+        CouponChangesDto result = couponService.getChangesSince(10L, 100);
+
+        // Assert
+        assertEquals(Arrays.asList(1L), result.getUpserts().stream().map(CouponDetailDto::getId).toList());
+        assertEquals(Arrays.asList(2L, 3L), result.getDeleted());
+        assertEquals(15L, result.getVersion());
+        assertFalse(result.isHasMore());
+    }
+
+    @Test
+    void getChangesSince_WithMoreChangesThanLimit_ShouldReportHasMore() {
+        // Arrange
+        when(couponChangeRepository.findBySeqGreaterThanOrderBySeqAsc(eq(0L), eq(PageRequest.of(0, 3))))
+                .thenReturn(Arrays.asList(
+                        change(1L, 1L, now.getTime()),
+                        change(2L, 2L, now.getTime()),
+                        change(3L, 3L, now.getTime())));
+        when(couponRepository.findAllById(any())).thenReturn(Arrays.asList(coupon));
+
+        // Act
+        CouponChangesDto result = couponService.getChangesSince(0L, 2);
+
+        // Assert
+        assertEquals(2L, result.getVersion());
+        assertTrue(result.isHasMore());
+        assertEquals(Arrays.asList(2L), result.getDeleted());
+    }
+
+    @Test
+    void getCouponsByIds_WithTooManyIds_ShouldThrowBadRequestException() {
+        // Arrange
+        List<Long> ids = LongStream.rangeClosed(1, BatchIds.MAX_IDS + 1).boxed().toList();
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> couponService.getCouponsByIds(ids));
+        verifyNoInteractions(couponCatalog, couponRepository);
     }
 
     @Test
     void getCouponById_WithValidId_ShouldReturnCouponDetailDto() {
         // Arrange
-        when(couponRepository.findActiveById(eq(1L), any(Date.class))).thenReturn(coupon);
+        when(couponCatalog.findActiveById(eq(1L))).thenReturn(Optional.of(coupon));
 
         // Act
         CouponDetailDto result = couponService.getCouponById(1L);
@@ -106,20 +246,34 @@ public class CouponServiceTest {
         assertEquals(coupon.getName(), result.getName());
         assertEquals(coupon.getDescription(), result.getDescription());
 
-        verify(couponRepository, times(1)).findActiveById(eq(1L), any(Date.class));
+        verify(couponCatalog, times(1)).findActiveById(eq(1L));
+        verifyNoInteractions(couponRepository);
+    }
+
+    @Test
+    void getCouponById_WithImage_ShouldBuildUrlFromConfiguredOrigin() {
+        // Arrange
+        coupon.setImageId(7L);
+        when(couponCatalog.findActiveById(eq(1L))).thenReturn(Optional.of(coupon));
+
+        // Act
+        CouponDetailDto result = couponService.getCouponById(1L);
+
+        // Assert
+        assertEquals("https://cdn.example.com/api/images/7/content", result.getImageUrl());
     }
 
     @Test
     void getCouponById_WithInvalidId_ShouldThrowResourceNotFoundException() {
         // Arrange
-        when(couponRepository.findActiveById(eq(999L), any(Date.class))).thenReturn(null);
+        when(couponCatalog.findActiveById(eq(999L))).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () -> {
             couponService.getCouponById(999L);
         });
 
-        verify(couponRepository, times(1)).findActiveById(eq(999L), any(Date.class));
+        verify(couponCatalog, times(1)).findActiveById(eq(999L));
     }
 
     @Test
@@ -137,6 +291,7 @@ public class CouponServiceTest {
         assertEquals(coupon.getDescription(), result.getDescription());
 
         verify(couponRepository, times(1)).save(any(Coupon.class));
+        verify(eventPublisher, times(1)).publishEvent(any(CouponCatalogChangedEvent.class));
     }
 
     @Test
@@ -166,6 +321,7 @@ public class CouponServiceTest {
 
         verify(couponRepository, times(1)).findById(eq(1L));
         verify(couponRepository, times(1)).save(any(Coupon.class));
+        verify(eventPublisher, times(1)).publishEvent(new CouponCatalogChangedEvent(1L));
     }
 
     @Test
@@ -194,6 +350,8 @@ public class CouponServiceTest {
         // Assert
         verify(couponRepository, times(1)).existsById(eq(1L));
         verify(couponRepository, times(1)).deleteById(eq(1L));
+        verify(couponChangeRepository, times(1)).save(new CouponChange(null, 1L, null));
+        verify(eventPublisher, times(1)).publishEvent(new CouponCatalogChangedEvent(1L));
     }
 
     @Test
@@ -209,4 +367,8 @@ public class CouponServiceTest {
         verify(couponRepository, times(1)).existsById(eq(999L));
         verify(couponRepository, never()).deleteById(any());
     }
-}
\ No newline at end of file
+
+    private static CouponChange change(Long seq, Long couponId, long changedAt) {
+        return new CouponChange(seq, couponId, new Date(changedAt));
+    }
+}
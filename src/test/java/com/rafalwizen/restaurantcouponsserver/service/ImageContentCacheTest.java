@@ -0,0 +1,98 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.dto.ImageCacheStatsDto;
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageVariantRepository;
+import com.rafalwizen.restaurantcouponsserver.storage.LocalImageStorage;
+import com.rafalwizen.restaurantcouponsserver.storage.StoredImage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ImageContentCacheTest {
+
+	@TempDir
+	Path dir;
+
+	private final ImageRepository imageRepository = mock(ImageRepository.class);
+	private final ImageContentCache cache = new ImageContentCache(imageRepository, mock(ImageVariantRepository.class),
+			DataSize.ofKilobytes(16), DataSize.ofKilobytes(4), 100, Duration.ofMinutes(1));
+
+	@Test
+	void body_ShouldServeRepeatedReadsFromMemory() throws IOException {
+		// Arrange
+		StoredImage stored = stored("small", new byte[]{1, 2, 3});
+
+		// Act
+		byte[] first = cache.body("small", stored);
+		Files.delete(dir.resolve("small"));
+		byte[] second = cache.cachedBody("small");
+
+		// Assert
+		assertArrayEquals(new byte[]{1, 2, 3}, first);
+		assertSame(first, second);
+		ImageCacheStatsDto stats = cache.stats();
+		assertEquals(1, stats.getBodies().getHits());
+		assertEquals(3, stats.getBodies().getWeight());
+		assertEquals(16 * 1024, stats.getBodies().getMaxWeight());
+	}
+
+	@Test
+	void body_WithFileAboveEntryLimit_ShouldNotCache() throws IOException {
+		// Arrange
+		StoredImage stored = stored("large", new byte[5 * 1024]);
+
+		// Act & Assert
+		assertNull(cache.body("large", stored));
+		assertNull(cache.cachedBody("large"));
+	}
+
+	@Test
+	void onImageDeleted_ShouldDropMetadataAndBodies() throws IOException {
+		// Arrange
+		cache.body("deleted", stored("deleted", new byte[]{4}));
+		when(imageRepository.findById(7L)).thenReturn(Optional.of(new Image()));
+		assertNotNull(cache.metadata(7L));
+
+		// Act
+		cache.onImageDeleted(new ImageDeletedEvent(7L, null, List.of("deleted")));
+
+		// Assert
+		assertNull(cache.cachedBody("deleted"));
+		cache.metadata(7L);
+		verify(imageRepository, times(2)).findById(7L);
+	}
+
+	@Test
+	void metadata_OfMissingImage_ShouldBeRememberedUntilImageIsStored() {
+		// Arrange
+		when(imageRepository.findById(8L)).thenReturn(Optional.empty());
+
+		// Act
+		assertNull(cache.metadata(8L));
+		assertNull(cache.metadata(8L));
+		verify(imageRepository, times(1)).findById(8L);
+		when(imageRepository.findById(8L)).thenReturn(Optional.of(new Image()));
+		cache.onImageStored(new ImageStoredEvent(8L));
+
+		// Assert
+		assertNotNull(cache.metadata(8L));
+		verify(imageRepository, times(2)).findById(8L);
+	}
+
+	private StoredImage stored(String key, byte[] content) throws IOException {
+		Files.write(dir.resolve(key), content);
+		return new LocalImageStorage(dir.toString()).open(key);
+	}
+}
@@ -0,0 +1,110 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageHeaderParserTest {
+
+	@Test
+	void update_WithJpegInSmallChunks_ShouldReadDimensionsFromFrameHeader() throws IOException {
+		// Arrange
+		byte[] jpeg = encode(new BufferedImage(321, 123, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+		// Act
+		ImageHeaderParser parser = parse(jpeg, 7);
+
+		// Assert
+		assertFalse(parser.isInvalid());
+		assertEquals(ImageFormat.JPEG, parser.format());
+		assertEquals(321, parser.width());
+		assertEquals(123, parser.height());
+	}
+
+	@Test
+	void update_WithPngAndGif_ShouldReadDimensionsFromFixedHeader() throws IOException {
+		// Act
+		ImageHeaderParser png = parse(encode(new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB), "png"), 5);
+		ImageHeaderParser gif = parse(encode(new BufferedImage(17, 9, BufferedImage.TYPE_INT_RGB), "gif"), 64);
+
+		// Assert
+		assertEquals(ImageFormat.PNG, png.format());
+		assertEquals(40, png.width());
+		assertEquals(30, png.height());
+		assertEquals(ImageFormat.GIF, gif.format());
+		assertEquals(17, gif.width());
+		assertEquals(9, gif.height());
+	}
+
+	@Test
+	void update_WithExtendedWebp_ShouldReadCanvasSize() {
+		// Arrange
+		ByteBuffer webp = ByteBuffer.allocate(30);
+		webp.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(0)
+				.put("WEBPVP8X".getBytes(StandardCharsets.US_ASCII)).putInt(0).putInt(0)
+				// 24-bit little-endian width and height minus one: 1999 and 999
+				.put(new byte[]{(byte) 0xCF, 0x07, 0x00, (byte) 0xE7, 0x03, 0x00});
+
+		// Act
+		ImageHeaderParser parser = parse(webp.array(), 30);
+
+		// Assert
+		assertEquals(ImageFormat.WEBP, parser.format());
+		assertEquals(2000, parser.width());
+		assertEquals(1000, parser.height());
+	}
+
+	@Test
+	void update_WithUnknownSignature_ShouldBeInvalidAfterSignatureLength() {
+		// Arrange
+		ImageHeaderParser parser = new ImageHeaderParser();
+
+		// Act
+		parser.update(ByteBuffer.wrap("<html><body>not an image".getBytes(StandardCharsets.US_ASCII), 0, 12));
+
+		// Assert
+		assertTrue(parser.isComplete());
+		assertTrue(parser.isInvalid());
+	}
+
+	@Test
+	void finish_WithTruncatedJpeg_ShouldBeInvalid() throws IOException {
+		// Arrange
+		byte[] jpeg = encode(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "jpeg");
+		ImageHeaderParser parser = new ImageHeaderParser();
+
+		// Act
+		parser.update(ByteBuffer.wrap(jpeg, 0, 20));
+		parser.finish();
+
+		// Assert
+		assertTrue(parser.isInvalid());
+	}
+
+	private static ImageHeaderParser parse(byte[] data, int chunkSize) {
+		ImageHeaderParser parser = new ImageHeaderParser();
+		for (int offset = 0; offset < data.length && !parser.isComplete(); offset += chunkSize) {
+			ByteBuffer chunk = ByteBuffer.wrap(data, offset, Math.min(chunkSize, data.length - offset));
+			int position = chunk.position();
+			parser.update(chunk);
+			assertEquals(position, chunk.position());
+		}
+		if (!parser.isComplete()) {
+			parser.finish();
+		}
+		return parser;
+	}
+
+	private static byte[] encode(BufferedImage image, String format) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertTrue(ImageIO.write(image, format, out));
+		return out.toByteArray();
+	}
+}
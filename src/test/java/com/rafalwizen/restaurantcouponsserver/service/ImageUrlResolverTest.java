@@ -0,0 +1,79 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageUrlResolverTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void contentUrl_WithConfiguredBaseUrl_ShouldNotNeedRequest() {
+        ImageUrlResolver resolver = new ImageUrlResolver("https://cdn.example.com/");
+
+        assertEquals("https://cdn.example.com/api/images/5/content", resolver.contentUrl(5L));
+    }
+
+    @Test
+    void contentUrl_WithoutBaseUrl_ShouldUseRequestOrigin() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/coupons");
+        request.setScheme("https");
+        request.setServerName("coupons.example.com");
+        request.setServerPort(443);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        ImageUrlResolver resolver = new ImageUrlResolver("");
+
+        // Act
+        String first = resolver.contentUrl(5L);
+        request.setServerName("other.example.com");
+        String second = resolver.contentUrl(6L);
+
+        // Assert
+        assertEquals("https://coupons.example.com/api/images/5/content", first);
+        // The origin is resolved once and reused for the rest of the request
+        assertEquals("https://coupons.example.com/api/images/6/content", second);
+    }
+
+    @Test
+    void contentUrl_OutsideRequestWithoutBaseUrl_ShouldBeRootRelative() {
+        ImageUrlResolver resolver = new ImageUrlResolver("");
+
+        assertEquals("/api/images/5/content", resolver.contentUrl(5L));
+    }
+
+    @Test
+    void contentUrl_WithSigningConfigured_ShouldLinkStoredObject() {
+        // Arrange
+        ImageUrlSigner signer = new ImageUrlSigner("test-image-url-secret", Duration.ofDays(7), Duration.ofHours(1));
+        ImageUrlResolver resolver = new ImageUrlResolver("https://cdn.example.com", signer, null);
+        Image image = new Image();
+        image.setId(5L);
+        image.setFilePath("ab/cd/abcd");
+        image.setFileType("image/webp");
+
+        // Act
+        String url = resolver.contentUrl(image);
+
+        // Assert
+        String prefix = "https://cdn.example.com/api/images/content/";
+        assertTrue(url.startsWith(prefix));
+        ImageUrlSigner.SignedImage signed = signer.verify(url.substring(prefix.length()));
+        assertEquals("ab/cd/abcd", signed.storedPath());
+        assertEquals("image/webp", signed.contentType());
+        assertEquals(signed.expiresAt(), resolver.signatureExpiry());
+        // Exports keep permanent id-based URLs
+        assertEquals("https://cdn.example.com/api/images/5/content", resolver.contentUrl("https://cdn.example.com", 5L));
+    }
+}
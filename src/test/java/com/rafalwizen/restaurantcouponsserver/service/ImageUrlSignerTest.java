@@ -0,0 +1,61 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageUrlSignerTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final ImageUrlSigner signer = new ImageUrlSigner("test-image-url-secret",
+            Duration.ofDays(7), Duration.ofHours(1));
+
+    @Test
+    void verify_WithSignedToken_ShouldReturnStoredObject() {
+        long expiresAt = signer.expiryAt(NOW);
+        String token = signer.sign("ab/cd/abcd", "image/png", expiresAt);
+
+        ImageUrlSigner.SignedImage signed = signer.verify(token, NOW);
+
+        assertEquals("ab/cd/abcd", signed.storedPath());
+        assertEquals("image/png", signed.contentType());
+        assertEquals(expiresAt, signed.expiresAt());
+    }
+
+    @Test
+    void expiryAt_ShouldRoundUpToGranularitySoUrlsStayStable() {
+        long expiresAt = signer.expiryAt(NOW);
+
+        assertEquals(0, expiresAt % 3600);
+        assertTrue(expiresAt >= NOW / 1000 + Duration.ofDays(7).toSeconds());
+        assertEquals(expiresAt, signer.expiryAt(NOW + 60_000));
+        assertEquals(signer.sign("key", "image/jpeg", expiresAt), signer.sign("key", "image/jpeg", signer.expiryAt(NOW + 60_000)));
+    }
+
+    @Test
+    void verify_WithTamperedOrForeignToken_ShouldReject() {
+        String token = signer.sign("ab/cd/abcd", "image/png", signer.expiryAt(NOW));
+        String forged = new ImageUrlSigner("other-secret", Duration.ofDays(7), Duration.ofHours(1))
+                .sign("ab/cd/other", "image/png", signer.expiryAt(NOW));
+        String payload = token.substring(0, token.indexOf('.'));
+        String signature = token.substring(token.indexOf('.') + 1);
+
+        assertThrows(ResourceNotFoundException.class, () -> signer.verify(forged, NOW));
+        assertThrows(ResourceNotFoundException.class,
+                () -> signer.verify(forged.substring(0, forged.indexOf('.')) + "." + signature, NOW));
+        assertThrows(ResourceNotFoundException.class, () -> signer.verify(payload, NOW));
+        assertThrows(ResourceNotFoundException.class, () -> signer.verify(payload + ".!!", NOW));
+    }
+
+    @Test
+    void verify_AfterExpiry_ShouldReject() {
+        long expiresAt = signer.expiryAt(NOW);
+        String token = signer.sign("ab/cd/abcd", "image/png", expiresAt);
+
+        assertThrows(ResourceNotFoundException.class, () -> signer.verify(token, expiresAt * 1000));
+    }
+}
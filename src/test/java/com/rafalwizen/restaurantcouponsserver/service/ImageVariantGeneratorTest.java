@@ -0,0 +1,191 @@
+package com.rafalwizen.restaurantcouponsserver.service;
+
+import com.rafalwizen.restaurantcouponsserver.mapper.ImageMapperImpl;
+import com.rafalwizen.restaurantcouponsserver.model.Image;
+import com.rafalwizen.restaurantcouponsserver.model.ImageVariant;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageRepository;
+import com.rafalwizen.restaurantcouponsserver.repository.ImageVariantRepository;
+import com.rafalwizen.restaurantcouponsserver.storage.ImageStorage;
+import com.rafalwizen.restaurantcouponsserver.storage.LocalImageStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ImageVariantGeneratorTest {
+
+	@Mock
+	private ImageRepository imageRepository;
+
+	@Mock
+	private ImageVariantRepository imageVariantRepository;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	@TempDir
+	Path uploadDir;
+
+	private ImageService imageService;
+	private ImageVariantGenerator generator;
+
+	@BeforeEach
+	void setUp() {
+		ImageContentCache imageContentCache = new ImageContentCache(imageRepository, imageVariantRepository,
+				DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), 100, Duration.ofMinutes(1));
+		ImageStorage imageStorage = new LocalImageStorage(uploadDir.toString());
+		imageService = new ImageService(imageRepository, imageVariantRepository, eventPublisher,
+				new ImageMapperImpl(), new ImageUrlResolver(""), imageContentCache, imageStorage,
+				uploadDir.toString(), DataSize.ofMegabytes(10), 8192, 40_000_000);
+		generator = new ImageVariantGenerator(imageRepository, imageVariantRepository, imageService, imageContentCache,
+				imageStorage, new SyncTaskExecutor(), new int[]{320, 640, 1280}, 0.85f);
+	}
+
+	@Test
+	void onImageStored_ShouldGenerateJpegVariantsSmallerThanOriginal() throws IOException {
+		// Arrange
+		Image image = storedImage(1L, "original.png", new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB));
+		when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+		when(imageVariantRepository.findByImageIdOrderByWidthAsc(1L)).thenReturn(List.of());
+
+		// Act
+		generator.onImageStored(new ImageStoredEvent(1L));
+
+		// Assert
+		ArgumentCaptor<ImageVariant> saved = ArgumentCaptor.forClass(ImageVariant.class);
+		verify(imageVariantRepository, times(2)).save(saved.capture());
+		assertEquals(Arrays.asList(320, 640), saved.getAllValues().stream().map(ImageVariant::getWidth).toList());
+		assertEquals(Arrays.asList(160, 320), saved.getAllValues().stream().map(ImageVariant::getHeight).toList());
+
+		ImageVariant small = saved.getAllValues().get(0);
+		assertEquals(MediaType.IMAGE_JPEG_VALUE, small.getFileType());
+		assertEquals("original-w320.jpg", small.getFilePath());
+		BufferedImage written = ImageIO.read(uploadDir.resolve(small.getFilePath()).toFile());
+		assertEquals(320, written.getWidth());
+		assertEquals(Files.size(uploadDir.resolve(small.getFilePath())), small.getFileSize());
+	}
+
+	@Test
+	void onImageStored_WithTransparentImage_ShouldKeepPng() throws IOException {
+		// Arrange
+		Image image = storedImage(1L, "logo.png", new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB));
+		when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+		when(imageVariantRepository.findByImageIdOrderByWidthAsc(1L)).thenReturn(List.of());
+
+		// Act
+		generator.onImageStored(new ImageStoredEvent(1L));
+
+		// Assert
+		ArgumentCaptor<ImageVariant> saved = ArgumentCaptor.forClass(ImageVariant.class);
+		verify(imageVariantRepository).save(saved.capture());
+		assertEquals(320, saved.getValue().getWidth());
+		assertEquals(MediaType.IMAGE_PNG_VALUE, saved.getValue().getFileType());
+	}
+
+	@Test
+	void getImageContent_ShouldPickSmallestVariantWideEnough() {
+		// Arrange
+		Image image = image(1L, "original.jpg", MediaType.IMAGE_JPEG_VALUE);
+		when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+		when(imageVariantRepository.findByImageIdOrderByWidthAsc(1L)).thenReturn(Arrays.asList(
+				variant(320, MediaType.IMAGE_JPEG_VALUE),
+				variant(640, MediaType.IMAGE_JPEG_VALUE)));
+
+		// Act
+		ImageContent small = imageService.getImageContent(1L, 200, List.of());
+		ImageContent medium = imageService.getImageContent(1L, 321, List.of());
+		ImageContent large = imageService.getImageContent(1L, 2000, List.of());
+
+		// Assert
+		assertEquals("original-w320.jpg", small.storedPath());
+		assertEquals("original-w640.jpg", medium.storedPath());
+		assertEquals("original.jpg", large.storedPath());
+		assertFalse(large.provisional());
+		assertNotEquals(small.etag(), medium.etag());
+	}
+
+	@Test
+	void getImageContent_WhenOriginalNotAccepted_ShouldNegotiateVariant() {
+		// Arrange
+		Image image = image(1L, "original.png", MediaType.IMAGE_PNG_VALUE);
+		when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+		when(imageVariantRepository.findByImageIdOrderByWidthAsc(1L)).thenReturn(Arrays.asList(
+				variant(320, MediaType.IMAGE_JPEG_VALUE),
+				variant(640, MediaType.IMAGE_JPEG_VALUE)));
+
+		// Act
+		ImageContent content = imageService.getImageContent(1L, null, MediaType.parseMediaTypes("image/jpeg"));
+
+		// Assert
+		assertEquals(MediaType.IMAGE_JPEG_VALUE, content.contentType());
+		assertEquals("original-w640.jpg", content.storedPath());
+	}
+
+	@Test
+	void getImageContent_BeforeVariantsExist_ShouldServeOriginal() {
+		// Arrange
+		Image image = image(1L, "original.jpg", MediaType.IMAGE_JPEG_VALUE);
+		when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+		when(imageVariantRepository.findByImageIdOrderByWidthAsc(1L)).thenReturn(List.of());
+
+		// Act
+		ImageContent content = imageService.getImageContent(1L, 320, List.of());
+		ImageContent unscaled = imageService.getImageContent(1L, null, List.of());
+
+		// Assert
+		assertEquals("original.jpg", content.storedPath());
+		assertEquals(MediaType.IMAGE_JPEG_VALUE, content.contentType());
+		assertTrue(content.provisional());
+		assertFalse(unscaled.provisional());
+	}
+
+	private Image storedImage(Long id, String filePath, BufferedImage content) throws IOException {
+		ImageIO.write(content, "png", uploadDir.resolve(filePath).toFile());
+		return image(id, filePath, MediaType.IMAGE_PNG_VALUE);
+	}
+
+	private Image image(Long id, String filePath, String fileType) {
+		Image image = new Image();
+		image.setId(id);
+		image.setFileName(filePath);
+		image.setFilePath(filePath);
+		image.setFileType(fileType);
+		image.setFileSize(1000L);
+		image.setCreatedAt(new Date());
+		return image;
+	}
+
+	private ImageVariant variant(int width, String fileType) {
+		ImageVariant variant = new ImageVariant();
+		variant.setImageId(1L);
+		variant.setWidth(width);
+		variant.setHeight(width / 2);
+		variant.setFileType(fileType);
+		variant.setFilePath("original-w" + width + ".jpg");
+		variant.setFileSize(100L);
+		return variant;
+	}
+}
@@ -0,0 +1,130 @@
+package com.rafalwizen.restaurantcouponsserver.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentImageStorageTest {
+
+	@TempDir
+	Path uploadDir;
+
+	private SegmentImageStorage storage;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		storage = open();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		storage.close();
+	}
+
+	@Test
+	void store_ThenOpen_ShouldServeBytesFromSegment() throws IOException {
+		storage.store("ab/cd/first", source("first image"));
+		storage.store("ab/cd/second", source("second image"));
+
+		StoredImage stored = storage.open("ab/cd/second");
+
+		assertNull(stored.file());
+		assertEquals(12, stored.length());
+		assertEquals("second image", new String(stored.readAllBytes(), StandardCharsets.UTF_8));
+		ByteArrayOutputStream range = new ByteArrayOutputStream();
+		stored.transferTo(7, 5, Channels.newChannel(range));
+		assertEquals("image", range.toString(StandardCharsets.UTF_8));
+		assertEquals(1, segmentCount());
+	}
+
+	@Test
+	void delete_ShouldRemoveKey() throws IOException {
+		storage.store("key", source("content"));
+
+		storage.delete("key");
+
+		assertThrows(NoSuchFileException.class, () -> storage.open("key"));
+	}
+
+	@Test
+	void store_WithExistingKey_ShouldReplaceObject() throws IOException {
+		storage.store("key", source("old"));
+
+		storage.store("key", source("new"));
+
+		assertEquals("new", new String(storage.open("key").readAllBytes(), StandardCharsets.UTF_8));
+		storage.close();
+		storage = open();
+		assertEquals("new", new String(storage.open("key").readAllBytes(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void open_AfterClose_ShouldFailInsteadOfRetrying() throws IOException {
+		storage.store("key", source("content"));
+
+		storage.close();
+
+		assertThrows(IOException.class, () -> storage.open("key"));
+	}
+
+	@Test
+	void compact_ShouldMoveLiveImagesOutOfMostlyDeadSegments() throws IOException {
+		storage.close();
+		storage = new SegmentImageStorage(uploadDir.toString(), "", DataSize.ofBytes(16), 0.5);
+		storage.store("dead", source("0123456789"));
+		storage.store("live", source("abc"));
+		storage.store("next", source("0123456789"));
+		storage.delete("dead");
+
+		storage.compact();
+
+		assertEquals("abc", new String(storage.open("live").readAllBytes(), StandardCharsets.UTF_8));
+		assertFalse(Files.exists(uploadDir.resolve("segments/segment-000001.dat")));
+	}
+
+	@Test
+	void reopen_ShouldRestoreIndexAndFallBackToLocalFiles() throws IOException {
+		storage.store("kept", source("kept"));
+		storage.store("deleted", source("deleted"));
+		storage.delete("deleted");
+		Files.writeString(uploadDir.resolve("legacy.jpg"), "legacy");
+		storage.close();
+
+		storage = open();
+
+		assertEquals("kept", new String(storage.open("kept").readAllBytes(), StandardCharsets.UTF_8));
+		assertThrows(NoSuchFileException.class, () -> storage.open("deleted"));
+		StoredImage legacy = storage.open("legacy.jpg");
+		assertEquals(uploadDir.resolve("legacy.jpg"), legacy.file());
+		assertEquals("legacy", new String(legacy.readAllBytes(), StandardCharsets.UTF_8));
+	}
+
+	private SegmentImageStorage open() throws IOException {
+		return new SegmentImageStorage(uploadDir.toString(), "", DataSize.ofMegabytes(1), 0.5);
+	}
+
+	private Path source(String content) throws IOException {
+		Path file = Files.createTempFile(uploadDir, "upload-", ".tmp");
+		Files.writeString(file, content);
+		return file;
+	}
+
+	private long segmentCount() throws IOException {
+		try (Stream<Path> files = Files.list(uploadDir.resolve("segments"))) {
+			return files.filter(file -> file.getFileName().toString().endsWith(".dat")).count();
+		}
+	}
+}